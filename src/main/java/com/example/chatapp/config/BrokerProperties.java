@@ -0,0 +1,13 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.broker")
+@Data
+@Component
+public class BrokerProperties {
+    private boolean sharded = true; // false falls back to the Spring simple broker
+    private int shards = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,18 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.cluster")
+@Data
+@Component
+public class ClusterProperties {
+    private boolean enabled = false;
+    private String channel = "chat_fanout";
+    private Long batchInterval = 10L; // milliseconds
+    private int maxPayloadBytes = 7900; // PostgreSQL NOTIFY payload limit is 8000 bytes
+    private Long reconnectDelay = 2000L; // milliseconds
+    private int outboxCapacity = 10000;
+    private Long payloadRetention = 60000L; // milliseconds
+}
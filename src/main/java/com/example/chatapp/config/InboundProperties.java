@@ -0,0 +1,13 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.inbound")
+@Data
+@Component
+public class InboundProperties {
+    private boolean striped = true; // false keeps Spring's shared pool for clientInboundChannel
+    private int stripes = 2 * Runtime.getRuntime().availableProcessors();
+}
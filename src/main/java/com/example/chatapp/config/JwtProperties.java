@@ -8,8 +8,21 @@ import org.springframework.stereotype.Component;
 @Data
 @Component
 public class JwtProperties {
-    private String secret;
+    private String secret; // HS256 only
+    private String algorithm = "RS256"; // RS256, EdDSA or HS256
+    private String keyEncryptionKey; // Base64 AES key wrapping stored private keys, RS256 and EdDSA only
+    private Long keyRotationInterval = 86400000L; // milliseconds a signing key signs new tokens
+    private Long keyRefreshInterval = 60000L; // milliseconds between reloads of the signing keys
     private Long expiration;
     private Long refreshExpiration;
+    private int revocationFilterSize = 100000; // revoked refresh tokens the Bloom filter is sized for
+    private double revocationFilterFpp = 0.0001; // false positive rate of the revocation filter
+    private int refreshFamiliesPerUser = 5; // sign-ins kept per user, older token families are deleted on sign-in
+    private int refreshSweepBatchSize = 1000; // expired refresh tokens deleted per transaction
+    private Long refreshSweepInterval = 3600000L; // milliseconds
     private Long testExpiration;
+    private int claimsCacheSize = 10000; // verified tokens kept in memory
+    private boolean statelessPrincipal = true; // build the principal from token claims instead of loading the user
+    private int tokenVersionCacheSize = 10000;
+    private Long tokenVersionCacheTtl = 30000L; // milliseconds
 }
@@ -0,0 +1,36 @@
+package com.example.chatapp.config;
+
+import com.example.chatapp.util.MessageIdGenerator;
+import com.example.chatapp.util.PooledSequenceIdGenerator;
+import com.example.chatapp.util.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@Slf4j
+public class MessageIdConfig {
+
+    @Bean
+    public MessageIdGenerator messageIdGenerator(MessageIdProperties properties, ClusterProperties clusterProperties,
+                                                 JdbcTemplate jdbcTemplate) {
+        log.info("Message id strategy: {}", properties.getStrategy());
+        return switch (properties.getStrategy()) {
+            case SEQUENCE -> new PooledSequenceIdGenerator(jdbcTemplate,
+                    properties.getSequenceName(), properties.getAllocationSize());
+            case SNOWFLAKE -> new SnowflakeIdGenerator(snowflakeNodeId(properties, clusterProperties));
+        };
+    }
+
+    private static long snowflakeNodeId(MessageIdProperties properties, ClusterProperties clusterProperties) {
+        if (properties.getNodeId() != null) return properties.getNodeId();
+        // two instances on the same default node id generate colliding message ids
+        if (clusterProperties.isEnabled()) {
+            throw new IllegalStateException("chat.messages.id.node-id (MESSAGE_ID_NODE) must be set to a value " +
+                    "unique per instance when chat.cluster.enabled is true, or use chat.messages.id.strategy=SEQUENCE");
+        }
+        log.info("Message id node id not set, using 0 for a single instance");
+        return 0L;
+    }
+}
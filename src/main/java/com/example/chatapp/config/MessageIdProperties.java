@@ -0,0 +1,20 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.messages.id")
+@Data
+@Component
+public class MessageIdProperties {
+    private Strategy strategy = Strategy.SNOWFLAKE;
+    private Long nodeId; // must be unique per instance for SNOWFLAKE, required when chat.cluster.enabled
+    private String sequenceName = "message_id_seq";
+    private int allocationSize = 50; // must match INCREMENT BY of the sequence
+
+    public enum Strategy {
+        SEQUENCE,
+        SNOWFLAKE
+    }
+}
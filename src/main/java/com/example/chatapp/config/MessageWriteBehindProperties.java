@@ -0,0 +1,19 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.messages.write-behind")
+@Data
+@Component
+public class MessageWriteBehindProperties {
+    private boolean enabled = true;
+    private int queueCapacity = 10000;
+    private int batchSize = 200;
+    private Long flushInterval = 50L; // milliseconds
+    private Long shutdownTimeout = 10000L; // milliseconds
+    private Long offerTimeout = 100L; // milliseconds a send waits for room in a full queue before it is rejected
+    private int maxAttempts = 3; // inserts of a message before it goes to message_dead_letter
+    private Long retryBackoff = 200L; // milliseconds, multiplied by the attempt number
+}
@@ -0,0 +1,16 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.passwords")
+@Data
+@Component
+public class PasswordHashingProperties {
+    private int strength = 10; // BCrypt cost factor, 4..31
+    private boolean rehashOnLogin = true; // re-encode hashes of a lower cost factor on successful login
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 64; // hash operations waiting for a thread before requests are rejected
+    private Long waitTimeout = 5000L; // milliseconds a request waits for its hash operation
+}
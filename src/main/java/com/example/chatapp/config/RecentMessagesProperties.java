@@ -0,0 +1,15 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.messages.recent")
+@Data
+@Component
+public class RecentMessagesProperties {
+    private int capacity = 100; // messages kept per room
+    private int maxRooms = 10000;
+    private Long idleTimeout = 600000L; // milliseconds
+    private Long sweepInterval = 60000L; // milliseconds
+}
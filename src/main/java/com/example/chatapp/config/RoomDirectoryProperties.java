@@ -0,0 +1,12 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.rooms.directory")
+@Data
+@Component
+public class RoomDirectoryProperties {
+    private Long firstPageTtl = 5000L; // milliseconds, bounds staleness of last messages and of changes on other instances
+}
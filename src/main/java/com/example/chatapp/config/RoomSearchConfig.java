@@ -0,0 +1,27 @@
+package com.example.chatapp.config;
+
+import com.example.chatapp.util.InMemoryRoomSearchEngine;
+import com.example.chatapp.util.PostgresRoomSearchEngine;
+import com.example.chatapp.util.RoomSearchEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@Slf4j
+public class RoomSearchConfig {
+
+    @Bean
+    public RoomSearchEngine roomSearchEngine(RoomSearchProperties properties, ClusterProperties clusterProperties,
+                                             JdbcTemplate jdbcTemplate) {
+        log.info("Room search engine: {}", properties.getEngine());
+        if (properties.getEngine() == RoomSearchProperties.Engine.IN_MEMORY && clusterProperties.isEnabled()) {
+            throw new IllegalStateException("IN_MEMORY room search keeps an index per node, use POSTGRES with chat.cluster.enabled");
+        }
+        return switch (properties.getEngine()) {
+            case POSTGRES -> new PostgresRoomSearchEngine(jdbcTemplate);
+            case IN_MEMORY -> new InMemoryRoomSearchEngine(jdbcTemplate);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.rooms.search")
+@Data
+@Component
+public class RoomSearchProperties {
+    private Engine engine = Engine.POSTGRES;
+    private int maxHits = 1000; // best ranked rooms a search word can match, before topic and member filters
+
+    public enum Engine {
+        POSTGRES,
+        IN_MEMORY
+    }
+}
@@ -2,7 +2,9 @@ package com.example.chatapp.config;
 
 import com.example.chatapp.handler.exception.RoomNotFoundException;
 import com.example.chatapp.model.Room;
+import com.example.chatapp.repository.RoomMembershipRepository;
 import com.example.chatapp.repository.RoomRepository;
+import com.example.chatapp.service.UserCache;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -12,6 +14,8 @@ import org.springframework.stereotype.Component;
 public class RoomSecurity {
 
     private final RoomRepository roomRepository;
+    private final RoomMembershipRepository roomMembershipRepository;
+    private final UserCache userCache;
 
     public boolean isOwner(Long roomId, String username) {
         Room room = roomRepository.findByIdWithOwner(roomId);
@@ -24,6 +28,8 @@ public class RoomSecurity {
         if (!roomRepository.existsById(roomId)) {
             throw new RoomNotFoundException("Room not found: " + roomId);
         }
-        return roomRepository.isMember(roomId, username);
+        return userCache.findByUsername(username)
+                .map(user -> roomMembershipRepository.isMember(roomId, user.id()))
+                .orElse(false);
     }
 }
\ No newline at end of file
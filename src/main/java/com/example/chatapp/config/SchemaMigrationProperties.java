@@ -0,0 +1,13 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.migrations")
+@Data
+@Component
+public class SchemaMigrationProperties {
+    private boolean enabled = true;
+    private String location = "classpath:db/migration"; // V<version>__<description>.sql scripts
+}
@@ -1,6 +1,8 @@
 package com.example.chatapp.config;
 
 import com.example.chatapp.config.filters.JwtAuthenticationFilter;
+import com.example.chatapp.config.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -34,8 +36,9 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        // BCrypt runs on its own bounded pool, see BoundedPasswordEncoder
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(properties.getStrength()), properties, meterRegistry);
     }
 
     @Bean
@@ -50,7 +53,10 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/auth/**", "/q/swagger-ui/**", "/q/**").permitAll()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(AbstractHttpConfigurer::disable)
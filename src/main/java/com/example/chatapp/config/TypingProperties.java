@@ -0,0 +1,14 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.typing")
+@Data
+@Component
+public class TypingProperties {
+    private Long ttl = 5000L; // milliseconds without a typing signal before the user stops typing
+    private Long flushInterval = 300L; // milliseconds, at most one snapshot per room per interval
+    private boolean legacyEvents = true; // one TypingStatus per message on /topic/typing/{roomId} besides the /batch array
+}
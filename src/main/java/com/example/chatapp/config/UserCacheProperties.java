@@ -0,0 +1,13 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.users.cache")
+@Data
+@Component
+public class UserCacheProperties {
+    private int maxSize = 10000; // users kept in memory
+    private Long ttl = 60000L; // milliseconds, bounds staleness of changes made on other instances
+}
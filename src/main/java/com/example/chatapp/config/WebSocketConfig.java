@@ -1,27 +1,160 @@
 package com.example.chatapp.config;
 
+import com.example.chatapp.config.broker.PreEncodedStompEncoder;
+import com.example.chatapp.config.broker.ShardedBrokerMessageHandler;
+import com.example.chatapp.config.websocket.PayloadFormat;
+import com.example.chatapp.config.websocket.PayloadFormatNegotiator;
+import com.example.chatapp.config.websocket.RoomStripedExecutor;
+import com.example.chatapp.config.websocket.SlowConsumerGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final BrokerProperties brokerProperties;
+    private final WebSocketTransportProperties transportProperties;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final PayloadFormatNegotiator payloadFormatNegotiator;
+    private final InboundProperties inboundProperties;
+    private final RoomStripedExecutor roomStripedExecutor;
+
+    public WebSocketConfig(BrokerProperties brokerProperties, WebSocketTransportProperties transportProperties,
+                           SlowConsumerGuard slowConsumerGuard, PayloadFormatNegotiator payloadFormatNegotiator,
+                           InboundProperties inboundProperties, RoomStripedExecutor roomStripedExecutor) {
+        this.brokerProperties = brokerProperties;
+        this.transportProperties = transportProperties;
+        this.slowConsumerGuard = slowConsumerGuard;
+        this.payloadFormatNegotiator = payloadFormatNegotiator;
+        this.inboundProperties = inboundProperties;
+        this.roomStripedExecutor = roomStripedExecutor;
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic"); //Topics for subscription
+        if (brokerProperties.isSharded()) {
+            // "/topic" is served by ShardedBrokerMessageHandler, the simple broker keeps CONNECT and heartbeats
+            config.enableSimpleBroker("/queue");
+        } else {
+            config.enableSimpleBroker("/topic"); //Topics for subscription
+        }
         config.setApplicationDestinationPrefixes("/app"); //Prefix for clients messages
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // SlowConsumerGuard buffers outbound frames itself, Spring's limits stay as a backstop
+        registration.setMessageSizeLimit(transportProperties.getMessageSizeLimit())
+                .setSendTimeLimit(transportProperties.getSendTimeLimit())
+                .setSendBufferSizeLimit(transportProperties.getSendBufferSizeLimit())
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (inboundProperties.isStriped()) {
+            // messages of one room are handled in order, see RoomStripedExecutor
+            registration.executor(roomStripedExecutor);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(payloadFormatNegotiator);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // only used for messages with these content types, JSON stays the default
+        messageConverters.add(binaryConverter(CBORMapper.builder().findAndAddModules().build(), PayloadFormat.CBOR));
+        messageConverters.add(binaryConverter(SmileMapper.builder().findAndAddModules().build(), PayloadFormat.SMILE));
+        return true;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws") //The client is knocking here to register a web socket connection.
                 .setAllowedOrigins("http://localhost:63342")
                 .withSockJS();
+        registry.addEndpoint("/ws-native") //Plain WebSocket, for clients that do not need the SockJS fallback
+                .setAllowedOrigins("http://localhost:63342")
+                .setHandshakeHandler(nativeHandshakeHandler())
+                .addInterceptors(payloadFormatNegotiator);
+    }
+
+    // permessage-deflate is negotiated by the servlet container when the client offers it
+    private DefaultHandshakeHandler nativeHandshakeHandler() {
+        return new DefaultHandshakeHandler() {
+            @Override
+            protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                         List<WebSocketExtension> requestedExtensions,
+                                                                         List<WebSocketExtension> supportedExtensions) {
+                List<WebSocketExtension> extensions =
+                        super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+                if (transportProperties.isNativeCompression()) return extensions;
+                return extensions.stream()
+                        .filter(extension -> !"permessage-deflate".equalsIgnoreCase(extension.getName()))
+                        .toList();
+            }
+        };
+    }
+
+    private static MappingJackson2MessageConverter binaryConverter(ObjectMapper objectMapper, PayloadFormat format) {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(objectMapper, format.getMimeType());
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "chat.broker", name = "sharded", havingValue = "true", matchIfMissing = true)
+    public ShardedBrokerMessageHandler shardedBrokerMessageHandler(
+            @Qualifier("clientInboundChannel") SubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerChannel") SubscribableChannel brokerChannel,
+            MeterRegistry meterRegistry) {
+        return new ShardedBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                List.of("/topic"), brokerProperties.getShards(), meterRegistry);
+    }
+
+    // the STOMP handler is registered with the endpoints, so the encoder is set once all beans are ready
+    @Bean
+    public SmartInitializingSingleton preEncodedStompEncoderInstaller(
+            @Qualifier("subProtocolWebSocketHandler") WebSocketHandler subProtocolWebSocketHandler) {
+        return () -> {
+            if (WebSocketHandlerDecorator.unwrap(subProtocolWebSocketHandler) instanceof SubProtocolWebSocketHandler handler) {
+                handler.getProtocolHandlers().stream()
+                        .filter(StompSubProtocolHandler.class::isInstance)
+                        .forEach(protocolHandler -> ((StompSubProtocolHandler) protocolHandler)
+                                .setEncoder(new PreEncodedStompEncoder()));
+            }
+        };
     }
 }
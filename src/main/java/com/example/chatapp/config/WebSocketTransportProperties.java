@@ -0,0 +1,17 @@
+package com.example.chatapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "chat.websocket")
+@Data
+@Component
+public class WebSocketTransportProperties {
+    private int messageSizeLimit = 64 * 1024; // bytes, inbound STOMP message
+    private int sendTimeLimit = 10000; // milliseconds a single send may block before the session is closed
+    private int sendBufferSizeLimit = 512 * 1024; // bytes buffered per session before the session is closed
+    private int typingDropThreshold = 64 * 1024; // bytes buffered per session above which typing frames are dropped
+    private int sendThreads = 2 * Runtime.getRuntime().availableProcessors();
+    private boolean nativeCompression = true; // permessage-deflate on the native endpoint
+}
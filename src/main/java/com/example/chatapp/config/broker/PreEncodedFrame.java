@@ -0,0 +1,151 @@
+package com.example.chatapp.config.broker;
+
+import com.example.chatapp.config.websocket.PayloadFormat;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.MultiValueMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * STOMP MESSAGE frame encoded once per broadcast and shared by all subscribers.
+ * <p>
+ * Everything after the {@code subscription} header (the other headers, the body and the
+ * terminating NUL) is encoded once and kept as one immutable byte array; {@link #encode(String)}
+ * only adds the command and the subscription header of the recipient. Binary payload formats get
+ * their own shared copy, built on first use.
+ * <p>
+ * What is saved per subscriber is the header and body encoding, not the copy: {@link #encode(String)}
+ * still returns a fresh array holding the whole frame. {@code StompSubProtocolHandler} takes one
+ * {@code byte[]} per frame from {@link org.springframework.messaging.simp.stomp.StompEncoder} and
+ * wraps it into a single WebSocket message, so there is no way to hand it the shared tail and a
+ * per-subscriber prefix separately.
+ */
+public final class PreEncodedFrame {
+    /** Message header carrying the frame from the broker to {@link PreEncodedStompEncoder}. */
+    public static final String HEADER = "preEncodedFrame";
+
+    private static final byte[] PREFIX = "MESSAGE\nsubscription:".getBytes(StandardCharsets.UTF_8);
+    private static final Set<String> RESERVED_HEADERS =
+            Set.of("subscription", "destination", "content-type", "content-length", "message-id");
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+    private final byte[] payload;
+    private final byte[] headerBlock; // headers other than subscription, content-type and content-length
+    private final byte[] tail;
+    private final Map<PayloadFormat, byte[]> transcodedTails = new ConcurrentHashMap<>();
+
+    private PreEncodedFrame(byte[] payload, byte[] headerBlock, String contentType) {
+        this.payload = payload;
+        this.headerBlock = headerBlock;
+        this.tail = tail(contentType, payload);
+    }
+
+    public static PreEncodedFrame of(Message<byte[]> message) {
+        MessageHeaders headers = message.getHeaders();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        writeHeader(out, "destination", SimpMessageHeaderAccessor.getDestination(headers));
+        writeHeader(out, "message-id", "b-" + MESSAGE_IDS.incrementAndGet());
+        Map<String, List<String>> nativeHeaders = nativeHeaders(headers);
+        if (nativeHeaders != null) {
+            nativeHeaders.forEach((name, values) -> {
+                if (RESERVED_HEADERS.contains(name)) return;
+                for (String value : values) {
+                    writeHeader(out, name, value);
+                }
+            });
+        }
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        return new PreEncodedFrame(message.getPayload(), out.toByteArray(),
+                contentType == null ? null : contentType.toString());
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public byte[] encode(String subscriptionId) {
+        return encode(subscriptionId, tail);
+    }
+
+    /**
+     * Frame with the JSON body transcoded to {@code format}. The transcoded body is computed
+     * once per format and shared as well.
+     */
+    public byte[] encode(String subscriptionId, PayloadFormat format) throws IOException {
+        if (!format.isBinary()) return encode(subscriptionId);
+        byte[] transcoded = transcodedTails.get(format);
+        if (transcoded == null) {
+            transcoded = tail(format.getMimeType().toString(), format.fromJson(payload));
+            transcodedTails.putIfAbsent(format, transcoded);
+        }
+        return encode(subscriptionId, transcoded);
+    }
+
+    private static byte[] encode(String subscriptionId, byte[] tail) {
+        byte[] subscription = escape(subscriptionId).getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[PREFIX.length + subscription.length + tail.length];
+        System.arraycopy(PREFIX, 0, frame, 0, PREFIX.length);
+        System.arraycopy(subscription, 0, frame, PREFIX.length, subscription.length);
+        System.arraycopy(tail, 0, frame, PREFIX.length + subscription.length, tail.length);
+        return frame;
+    }
+
+    private byte[] tail(String contentType, byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(headerBlock.length + body.length + 64);
+        out.write('\n');
+        out.writeBytes(headerBlock);
+        writeHeader(out, "content-type", contentType);
+        writeHeader(out, "content-length", String.valueOf(body.length));
+        out.write('\n');
+        out.writeBytes(body);
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, List<String>> nativeHeaders(MessageHeaders headers) {
+        Object value = headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        return value instanceof MultiValueMap<?, ?> map ? (Map<String, List<String>>) map : null;
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, String name, String value) {
+        if (value == null) return;
+        out.writeBytes(escape(name).getBytes(StandardCharsets.UTF_8));
+        out.write(':');
+        out.writeBytes(escape(value).getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    // STOMP 1.2 header escaping, same as StompEncoder
+    private static String escape(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ':' -> "\\c";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) sb.append(replacement);
+                else sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chatapp.config.broker;
+
+import com.example.chatapp.config.websocket.PayloadFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link StompEncoder} that writes a {@link PreEncodedFrame} as is, with only the subscription
+ * of the recipient spliced in. The result is still one array per recipient, see {@link PreEncodedFrame}. Messages marked with {@link PayloadFormat#HEADER} get their JSON
+ * body transcoded to the negotiated format. Other messages are encoded as usual.
+ */
+@Slf4j
+public class PreEncodedStompEncoder extends StompEncoder {
+
+    @Override
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        PayloadFormat format = headers.get(PayloadFormat.HEADER) instanceof PayloadFormat f ? f : PayloadFormat.JSON;
+        try {
+            if (headers.get(PreEncodedFrame.HEADER) instanceof PreEncodedFrame frame) {
+                Object subscriptionId = headers.get(SimpMessageHeaderAccessor.SUBSCRIPTION_ID_HEADER);
+                if (subscriptionId != null) {
+                    return frame.encode(subscriptionId.toString(), format);
+                }
+            }
+            if (format.isBinary()) {
+                return super.encode(withContentType(headers, format), format.fromJson(payload));
+            }
+        } catch (IOException e) {
+            log.error("Failed to encode payload as {}, sending JSON: {}", format, e.getMessage());
+        }
+        return super.encode(headers, payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> withContentType(Map<String, Object> headers, PayloadFormat format) {
+        Map<String, Object> copy = new HashMap<>(headers);
+        MultiValueMap<String, String> nativeHeaders = new LinkedMultiValueMap<>();
+        Object original = headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (original instanceof Map<?, ?> map) {
+            nativeHeaders.putAll((Map<String, List<String>>) map);
+        }
+        nativeHeaders.set("content-type", format.getMimeType().toString());
+        copy.put(NativeMessageHeaderAccessor.NATIVE_HEADERS, nativeHeaders);
+        return copy;
+    }
+}
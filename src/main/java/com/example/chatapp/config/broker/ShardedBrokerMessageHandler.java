@@ -0,0 +1,255 @@
+package com.example.chatapp.config.broker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process STOMP broker that splits destinations across independent shards.
+ * <p>
+ * Room destinations ({@code /topic/room/{id}}, {@code /topic/room/{id}/joined}, {@code /topic/typing/{id}})
+ * are assigned to a shard by room id, other destinations by hash. Each shard owns its subscription
+ * index and a single dispatch thread, so the index needs no locking and a busy room only delays
+ * rooms of the same shard. Only exact destinations are supported, no patterns or selectors.
+ * <p>
+ * A published message is encoded into a STOMP frame once, see {@link PreEncodedFrame}; subscribers
+ * get lightweight messages referencing it.
+ * <p>
+ * CONNECT and heartbeats are left to the simple broker registered for the other prefixes.
+ */
+@Slf4j
+public class ShardedBrokerMessageHandler extends AbstractBrokerMessageHandler {
+    private static final Pattern ROOM_DESTINATION = Pattern.compile("^/topic/(?:room|typing)/(\\d+)");
+
+    private final Shard[] shards;
+    // sessionId -> subscriptionId -> destination, to route UNSUBSCRIBE and DISCONNECT
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    public ShardedBrokerMessageHandler(SubscribableChannel clientInboundChannel,
+                                       MessageChannel clientOutboundChannel,
+                                       SubscribableChannel brokerChannel,
+                                       Collection<String> destinationPrefixes,
+                                       int shardCount,
+                                       MeterRegistry meterRegistry) {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, destinationPrefixes);
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive, got " + shardCount);
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, meterRegistry);
+        }
+    }
+
+    @Override
+    protected void startInternal() {
+        publishBrokerAvailableEvent();
+        log.info("Sharded broker started with {} shards", shards.length);
+    }
+
+    @Override
+    protected void stopInternal() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+
+        if (SimpMessageType.DISCONNECT.equals(messageType)) {
+            removeSession(sessionId);
+            return;
+        }
+        if (SimpMessageType.UNSUBSCRIBE.equals(messageType)) {
+            unsubscribe(sessionId, subscriptionId);
+            return;
+        }
+        if (destination == null || !checkDestinationPrefix(destination)) {
+            return;
+        }
+        if (SimpMessageType.SUBSCRIBE.equals(messageType)) {
+            if (sessionId == null || subscriptionId == null) return;
+            sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+            Shard shard = shardFor(destination);
+            shard.execute(() -> shard.subscribe(destination, sessionId, subscriptionId));
+        } else if (SimpMessageType.MESSAGE.equals(messageType)) {
+            shardFor(destination).publish(destination, message);
+        }
+    }
+
+    private void unsubscribe(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = sessionId != null ? sessions.get(sessionId) : null;
+        if (subscriptions == null || subscriptionId == null) return;
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            Shard shard = shardFor(destination);
+            shard.execute(() -> shard.unsubscribe(destination, sessionId, subscriptionId));
+        }
+    }
+
+    private void removeSession(String sessionId) {
+        Map<String, String> subscriptions = sessionId != null ? sessions.remove(sessionId) : null;
+        if (subscriptions == null) return;
+        subscriptions.forEach((subscriptionId, destination) -> {
+            Shard shard = shardFor(destination);
+            shard.execute(() -> shard.unsubscribe(destination, sessionId, subscriptionId));
+        });
+    }
+
+    private Shard shardFor(String destination) {
+        Matcher matcher = ROOM_DESTINATION.matcher(destination);
+        long key = matcher.find() ? Long.parseLong(matcher.group(1)) : destination.hashCode();
+        return shards[(int) Math.floorMod(key, (long) shards.length)];
+    }
+
+    private void sendToSubscriber(String sessionId, String subscriptionId, Message<?> message, PreEncodedFrame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        if (frame != null) {
+            // the frame has everything else, only what routing and the STOMP handler look at is set
+            MessageHeaders headers = message.getHeaders();
+            accessor.setDestination(SimpMessageHeaderAccessor.getDestination(headers));
+            accessor.setHeader(MessageHeaders.CONTENT_TYPE, headers.get(MessageHeaders.CONTENT_TYPE));
+            accessor.setHeader(PreEncodedFrame.HEADER, frame);
+        } else {
+            accessor.copyHeadersIfAbsent(message.getHeaders());
+        }
+        accessor.setLeaveMutable(true);
+        Message<?> reply = MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+        try {
+            getClientOutboundChannelForSession(sessionId).send(reply);
+        } catch (Exception e) {
+            log.error("Failed to send message to session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PreEncodedFrame preEncode(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[])) return null;
+        try {
+            return PreEncodedFrame.of((Message<byte[]>) message);
+        } catch (Exception e) {
+            log.warn("Failed to pre-encode message to {}: {}",
+                    SimpMessageHeaderAccessor.getDestination(message.getHeaders()), e.getMessage());
+            return null;
+        }
+    }
+
+    private final class Shard {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        // destination -> sessionId -> subscriptionIds, touched only by the shard thread
+        private final Map<String, Map<String, Set<String>>> subscriptions = new HashMap<>();
+        private final AtomicInteger subscriptionCount = new AtomicInteger();
+        private final Counter published;
+        private final Counter delivered;
+
+        private Shard(int index, MeterRegistry meterRegistry) {
+            this.index = index;
+            AtomicInteger threads = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "broker-shard-" + index + "-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            String shardTag = String.valueOf(index);
+            this.published = Counter.builder("chat.broker.messages.published")
+                    .description("Messages published to destinations of the shard")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            this.delivered = Counter.builder("chat.broker.messages.delivered")
+                    .description("Messages sent to subscribers of the shard")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            Gauge.builder("chat.broker.queue.depth", executor, e -> e.getQueue().size())
+                    .description("Tasks waiting for the shard thread")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            Gauge.builder("chat.broker.subscriptions", subscriptionCount, AtomicInteger::get)
+                    .description("Active subscriptions of the shard")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+        }
+
+        private void execute(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (Exception e) {
+                log.warn("Broker shard {} rejected a task: {}", index, e.getMessage());
+            }
+        }
+
+        private void publish(String destination, Message<?> message) {
+            published.increment();
+            execute(() -> fanOut(destination, message));
+        }
+
+        private void subscribe(String destination, String sessionId, String subscriptionId) {
+            boolean added = subscriptions.computeIfAbsent(destination, d -> new HashMap<>())
+                    .computeIfAbsent(sessionId, s -> new HashSet<>())
+                    .add(subscriptionId);
+            if (added) subscriptionCount.incrementAndGet();
+        }
+
+        private void unsubscribe(String destination, String sessionId, String subscriptionId) {
+            Map<String, Set<String>> bySession = subscriptions.get(destination);
+            if (bySession == null) return;
+            Set<String> ids = bySession.get(sessionId);
+            if (ids == null || !ids.remove(subscriptionId)) return;
+            subscriptionCount.decrementAndGet();
+            if (ids.isEmpty()) bySession.remove(sessionId);
+            if (bySession.isEmpty()) subscriptions.remove(destination);
+        }
+
+        private void fanOut(String destination, Message<?> message) {
+            Map<String, Set<String>> bySession = subscriptions.get(destination);
+            if (bySession == null) return;
+            PreEncodedFrame frame = preEncode(message);
+            int count = 0;
+            for (Map.Entry<String, Set<String>> entry : bySession.entrySet()) {
+                for (String subscriptionId : entry.getValue()) {
+                    sendToSubscriber(entry.getKey(), subscriptionId, message, frame);
+                    count++;
+                }
+            }
+            delivered.increment(count);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.chatapp.config.cluster;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+
+import javax.sql.DataSource;
+
+/**
+ * Multi-node fanout, enabled with {@code chat.cluster.enabled=true}.
+ * PostgreSQL LISTEN/NOTIFY is the default transport, another one can be plugged in
+ * by declaring a {@link ClusterTransport} bean, and likewise a {@link ClusterPayloadStore}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "chat.cluster", name = "enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(ClusterTransport.class)
+    public ClusterTransport postgresClusterTransport(DataSource dataSource, ClusterProperties properties) {
+        return new PostgresClusterTransport(dataSource, properties.getChannel(), properties.getMaxPayloadBytes(),
+                properties.getReconnectDelay());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(ClusterPayloadStore.class)
+    public ClusterPayloadStore postgresClusterPayloadStore(DataSource dataSource) {
+        return new PostgresClusterPayloadStore(dataSource);
+    }
+
+    @Bean
+    public ClusterFanout clusterFanout(@Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+                                       ClusterTransport transport, ClusterPayloadStore payloadStore,
+                                       MessageService messageService, ObjectMapper objectMapper,
+                                       ClusterProperties properties, MeterRegistry meterRegistry) {
+        return new ClusterFanout(brokerChannel, transport, payloadStore, messageService, objectMapper, properties,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.chatapp.config.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A broker message relayed between nodes: destination, content type and the already serialized payload.
+ * A payload too large for the transport is replaced with {@code payloadRef}, see {@link ClusterPayloadStore}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClusterEvent {
+    private String origin; // node id of the sender, used to drop echoes
+    private String destination;
+    private String contentType;
+    private String payload;
+    private Long payloadRef;
+}
@@ -0,0 +1,281 @@
+package com.example.chatapp.config.cluster;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.service.MessageService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.InterceptableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Relays {@code /topic} broadcasts between nodes.
+ * <p>
+ * Every MESSAGE sent to the broker channel of this node is queued and published through the
+ * {@link ClusterTransport} in batches, every {@code batchInterval}. Batches from other nodes are
+ * sent to the local broker channel with the {@link #ORIGIN_HEADER} set, so they are not relayed
+ * back; batches of this node are recognized by the node id and dropped.
+ * Room messages from other nodes also go to the local recent message buffer.
+ * <p>
+ * Presence deltas ({@code /topic/room/{roomId}/presence}) and typing snapshots
+ * ({@code /topic/typing/{roomId}/batch}) are not relayed: they describe the sessions of the node
+ * that sent them, so a copy on another node would announce a user offline who is still online
+ * there, or replace its typing state. Presence and typing snapshots are node-local.
+ * <p>
+ * At most {@code outboxCapacity} events wait for a batch, broadcasts beyond that are delivered
+ * locally only. An event larger than the transport payload limit is saved to the
+ * {@link ClusterPayloadStore} and relayed by reference; receivers load it within {@code payloadRetention}.
+ */
+@Slf4j
+public class ClusterFanout implements ChannelInterceptor {
+    public static final String ORIGIN_HEADER = "clusterOrigin";
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final Pattern ROOM_MESSAGES = Pattern.compile("^/topic/room/(\\d+)$");
+    private static final Pattern NODE_LOCAL = Pattern.compile("^/topic/(room/\\d+/presence|typing/\\d+/batch)$");
+    private static final TypeReference<List<ClusterEvent>> BATCH_TYPE = new TypeReference<>() {};
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final InterceptableChannel brokerChannel;
+    private final ClusterTransport transport;
+    private final ClusterPayloadStore payloadStore;
+    private final MessageService messageService;
+    private final ObjectMapper objectMapper;
+    private final ClusterProperties properties;
+    private final BlockingQueue<ClusterEvent> outbox;
+    private final AtomicBoolean outboxFull = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter published;
+    private final Counter received;
+    private final Counter dropped;
+
+    public ClusterFanout(InterceptableChannel brokerChannel, ClusterTransport transport,
+                         ClusterPayloadStore payloadStore, MessageService messageService, ObjectMapper objectMapper,
+                         ClusterProperties properties, MeterRegistry meterRegistry) {
+        this.brokerChannel = brokerChannel;
+        this.transport = transport;
+        this.payloadStore = payloadStore;
+        this.messageService = messageService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.outbox = new ArrayBlockingQueue<>(properties.getOutboxCapacity());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.published = meterRegistry.counter("chat.cluster.events.published");
+        this.received = meterRegistry.counter("chat.cluster.events.received");
+        this.dropped = meterRegistry.counter("chat.cluster.events.dropped");
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.start(this::receive);
+        brokerChannel.addInterceptor(this);
+        flusher.scheduleWithFixedDelay(this::flush, properties.getBatchInterval(), properties.getBatchInterval(),
+                TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::deleteExpiredPayloads, properties.getPayloadRetention(),
+                properties.getPayloadRetention(), TimeUnit.MILLISECONDS);
+        log.info("Cluster fanout started, node id {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        brokerChannel.removeInterceptor(this);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.stop();
+        log.info("Cluster fanout stopped");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(ORIGIN_HEADER)
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX) || NODE_LOCAL.matcher(destination).matches()) {
+            return message;
+        }
+        String payload;
+        if (message.getPayload() instanceof byte[] bytes) {
+            payload = new String(bytes, StandardCharsets.UTF_8);
+        } else if (message.getPayload() instanceof String text) {
+            payload = text;
+        } else {
+            return message;
+        }
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        ClusterEvent event = new ClusterEvent(nodeId, destination, contentType == null ? null : contentType.toString(),
+                payload, null);
+        if (!outbox.offer(event)) {
+            dropped.increment();
+            if (outboxFull.compareAndSet(false, true)) {
+                log.warn("Cluster outbox is full ({} events), broadcasts are delivered locally only",
+                        properties.getOutboxCapacity());
+            }
+        }
+        return message;
+    }
+
+    void flush() {
+        outboxFull.set(false);
+        if (outbox.isEmpty()) return;
+        int limit = transport.getMaxPayloadBytes();
+        StringBuilder batch = new StringBuilder("[");
+        int batchBytes = 2;
+        int batchSize = 0;
+        ClusterEvent event;
+        while ((event = outbox.poll()) != null) {
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(event);
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize cluster event for {}: {}", event.getDestination(), e.getMessage());
+                dropped.increment();
+                continue;
+            }
+            int jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+            if (jsonBytes + 2 > limit) {
+                json = park(event, jsonBytes);
+                if (json == null) continue;
+                jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+            }
+            if (batchBytes + jsonBytes + 1 > limit) {
+                send(batch.append(']').toString(), batchSize);
+                batch.setLength(1);
+                batchBytes = 2;
+                batchSize = 0;
+            }
+            if (batchSize > 0) {
+                batch.append(',');
+                batchBytes++;
+            }
+            batch.append(json);
+            batchBytes += jsonBytes;
+            batchSize++;
+        }
+        if (batchSize > 0) {
+            send(batch.append(']').toString(), batchSize);
+        }
+    }
+
+    /**
+     * Saves the payload of an oversized event to the payload store, returns the reference event to relay instead.
+     */
+    private String park(ClusterEvent event, int eventBytes) {
+        try {
+            long ref = payloadStore.save(event.getPayload());
+            log.debug("Event for {} is {} bytes, relayed as payload {}", event.getDestination(), eventBytes, ref);
+            return objectMapper.writeValueAsString(new ClusterEvent(event.getOrigin(), event.getDestination(),
+                    event.getContentType(), null, ref));
+        } catch (Exception e) {
+            log.error("Failed to park {} byte event for {}, delivered locally only: {}",
+                    eventBytes, event.getDestination(), e.getMessage());
+            dropped.increment();
+            return null;
+        }
+    }
+
+    private void deleteExpiredPayloads() {
+        try {
+            int deleted = payloadStore.deleteCreatedBefore(
+                    LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(properties.getPayloadRetention())));
+            if (deleted > 0) log.debug("Deleted {} expired cluster payloads", deleted);
+        } catch (Exception e) {
+            log.error("Failed to delete expired cluster payloads: {}", e.getMessage());
+        }
+    }
+
+    private void send(String batch, int size) {
+        try {
+            transport.publish(batch);
+            published.increment(size);
+        } catch (Exception e) {
+            log.error("Failed to publish {} cluster events: {}", size, e.getMessage());
+            dropped.increment(size);
+        }
+    }
+
+    void receive(String batch) {
+        List<ClusterEvent> events;
+        try {
+            events = objectMapper.readValue(batch, BATCH_TYPE);
+        } catch (JsonProcessingException e) {
+            log.error("Malformed cluster batch: {}", e.getMessage());
+            return;
+        }
+        for (ClusterEvent event : events) {
+            if (nodeId.equals(event.getOrigin())) continue;
+            received.increment();
+            deliver(event);
+        }
+    }
+
+    private void deliver(ClusterEvent event) {
+        if (event.getPayloadRef() != null) {
+            String payload = payloadStore.load(event.getPayloadRef());
+            if (payload == null) {
+                log.warn("Payload {} of the event for {} is gone, event skipped",
+                        event.getPayloadRef(), event.getDestination());
+                return;
+            }
+            event.setPayload(payload);
+        }
+        Matcher matcher = ROOM_MESSAGES.matcher(event.getDestination());
+        if (matcher.matches()) {
+            try {
+                MessageDTO message = objectMapper.readValue(event.getPayload(), MessageDTO.class);
+                messageService.acceptRemoteMessage(Long.valueOf(matcher.group(1)), message);
+            } catch (Exception e) {
+                log.error("Failed to apply remote message for {}: {}", event.getDestination(), e.getMessage());
+            }
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(event.getDestination());
+        if (event.getContentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(event.getContentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, event.getOrigin());
+        byte[] payload = event.getPayload().getBytes(StandardCharsets.UTF_8);
+        ((MessageChannel) brokerChannel).send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+}
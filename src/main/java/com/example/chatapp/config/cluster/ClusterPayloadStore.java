@@ -0,0 +1,19 @@
+package com.example.chatapp.config.cluster;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared storage for event payloads too large for the {@link ClusterTransport}.
+ * The sending node saves the payload and relays its id, receiving nodes load it by id.
+ */
+public interface ClusterPayloadStore {
+
+    long save(String payload);
+
+    /**
+     * @return the payload, or null when it was deleted already
+     */
+    String load(long id);
+
+    int deleteCreatedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,18 @@
+package com.example.chatapp.config.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Channel between nodes for batches of {@link ClusterEvent}s, serialized as JSON arrays.
+ * Every node receives every batch, including its own.
+ */
+public interface ClusterTransport {
+
+    void publish(String batch);
+
+    void start(Consumer<String> receiver);
+
+    void stop();
+
+    int getMaxPayloadBytes();
+}
@@ -0,0 +1,39 @@
+package com.example.chatapp.config.cluster;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@link ClusterPayloadStore} in the {@code cluster_event_payload} table, see data.sql.
+ */
+public class PostgresClusterPayloadStore implements ClusterPayloadStore {
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresClusterPayloadStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public long save(String payload) {
+        Long id = jdbcTemplate.queryForObject(
+                "INSERT INTO cluster_event_payload (payload, created_at) VALUES (?, ?) RETURNING id",
+                Long.class, payload, LocalDateTime.now());
+        if (id == null) throw new IllegalStateException("Insert returned no id");
+        return id;
+    }
+
+    @Override
+    public String load(long id) {
+        List<String> payloads = jdbcTemplate.queryForList(
+                "SELECT payload FROM cluster_event_payload WHERE id = ?", String.class, id);
+        return payloads.isEmpty() ? null : payloads.get(0);
+    }
+
+    @Override
+    public int deleteCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM cluster_event_payload WHERE created_at < ?", cutoff);
+    }
+}
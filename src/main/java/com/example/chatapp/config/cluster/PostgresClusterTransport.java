@@ -0,0 +1,101 @@
+package com.example.chatapp.config.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClusterTransport} over PostgreSQL {@code LISTEN/NOTIFY}, using the application datasource.
+ * Notifications are sent with {@code pg_notify} on pooled connections. One pooled connection is
+ * held by the listener thread, which reconnects after {@code reconnectDelay} when it is lost.
+ */
+@Slf4j
+public class PostgresClusterTransport implements ClusterTransport {
+    private static final int POLL_TIMEOUT_MS = 500;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final int maxPayloadBytes;
+    private final long reconnectDelay;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresClusterTransport(DataSource dataSource, String channel, int maxPayloadBytes, long reconnectDelay) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void publish(String batch) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, batch);
+    }
+
+    @Override
+    public void start(Consumer<String> receiver) {
+        running = true;
+        listener = new Thread(() -> listen(receiver), "cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public int getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    private void listen(Consumer<String> receiver) {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for cluster events on channel {}", channel);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        try {
+                            receiver.accept(notification.getParameter());
+                        } catch (Exception e) {
+                            log.error("Failed to handle cluster event: {}", e.getMessage());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) break;
+                log.error("Cluster listener lost its connection, reconnecting in {} ms: {}", reconnectDelay, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        log.info("Cluster listener stopped");
+    }
+}
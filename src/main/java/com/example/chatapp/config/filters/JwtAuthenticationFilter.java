@@ -1,6 +1,10 @@
 package com.example.chatapp.config.filters;
 
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.service.TokenVersionService;
 import com.example.chatapp.util.JwtUtil;
+import com.example.chatapp.util.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,6 +26,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final JwtProperties jwtProperties;
+    private final TokenVersionService tokenVersionService;
 
     @Override
     protected void doFilterInternal(
@@ -30,22 +36,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             FilterChain filterChain) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String jwt = null;
-        String username = null;
+        Claims claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
-                logger.error("Cannot set user authentication: {}", e);
-            }
+            // signature and expiry are checked once, the claims are cached until the token expires
+            claims = jwtUtil.verifyToken(authHeader.substring(7));
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt) && !jwtUtil.isTokenExpired(jwt)) {
+        if (claims != null && claims.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            try {
+                UserDetails userDetails = loadPrincipal(claims);
+                if (userDetails == null) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -53,9 +58,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                 userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+            } catch (Exception e) {
+                logger.error("Cannot set user authentication: " + e.getMessage());
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Builds the principal from the token claims when the token carries the user id,
+     * the only database access is the cached token version check. Older tokens fall back to loading the user.
+     */
+    private UserDetails loadPrincipal(Claims claims) {
+        UserPrincipal principal = jwtProperties.isStatelessPrincipal() ? UserPrincipal.fromClaims(claims) : null;
+        if (principal == null) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        Integer tokenVersion = claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class);
+        if (!tokenVersionService.isCurrent(principal.getId(), tokenVersion)) {
+            logger.debug("Revoked access token of user " + principal.getUsername());
+            return null;
+        }
+        return principal;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package com.example.chatapp.config.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Session with its own bounded outbound buffer, drained by a shared sender pool.
+ * <p>
+ * {@link #sendMessage} never blocks. Above the typing threshold new typing frames are dropped;
+ * when the buffer limit would be exceeded, buffered typing frames are evicted first, and if that
+ * is not enough the session is closed. The close reason carries the seq of the last message
+ * written per room ({@code resume=roomId:seq,...}), to be used with the replay subscription.
+ * The cursor is recorded by the draining thread after each room frame is written, and read by
+ * whichever thread closes the session, typically the watchdog while a send is still stalled.
+ * Frames are classified by their STOMP headers, which are text in binary (CBOR, Smile) frames too.
+ */
+@Slf4j
+public class BufferedWebSocketSession extends WebSocketSessionDecorator {
+    private static final Pattern ROOM_DESTINATION = Pattern.compile("^/topic/room/(\\d+)$");
+    private static final Pattern SEQ = Pattern.compile("\"seq\"\\s*:\\s*(\\d+)");
+    private static final int MAX_REASON_LENGTH = 123; // close reason limit of the WebSocket protocol
+
+    private final SlowConsumerGuard guard;
+    private final Executor sender;
+    private final Deque<Frame> buffer = new ArrayDeque<>();
+    private final Map<Long, Long> resumeSeqs = new ConcurrentHashMap<>(); // room id to the seq of the last frame written
+    private long bufferedBytes; // guarded by this
+    private long highWaterMark; // guarded by this
+    private boolean draining; // guarded by this
+    private volatile long sendStartedAt;
+    private volatile boolean closing;
+
+    BufferedWebSocketSession(WebSocketSession delegate, SlowConsumerGuard guard, Executor sender) {
+        super(delegate);
+        this.guard = guard;
+        this.sender = sender;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closing) return;
+        Frame frame = Frame.of(message);
+        boolean startDrain = false;
+        boolean overflow = false;
+        synchronized (this) {
+            if (frame.typing && bufferedBytes + frame.size > guard.getTypingDropThreshold()) {
+                guard.typingDropped(1);
+                return;
+            }
+            if (bufferedBytes + frame.size > guard.getSendBufferSizeLimit()) {
+                evictTyping();
+            }
+            if (bufferedBytes + frame.size > guard.getSendBufferSizeLimit()) {
+                overflow = true;
+            } else {
+                buffer.add(frame);
+                bufferedBytes += frame.size;
+                highWaterMark = Math.max(highWaterMark, bufferedBytes);
+                startDrain = !draining;
+                draining = true;
+            }
+        }
+        if (overflow) {
+            closeSlowConsumer("send buffer limit " + guard.getSendBufferSizeLimit() + " bytes exceeded");
+        } else if (startDrain) {
+            try {
+                sender.execute(this::drain);
+            } catch (Exception e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                throw new IOException("Send pool rejected session " + getId(), e);
+            }
+        }
+    }
+
+    /** Milliseconds the current send is blocked for, 0 when no send is in progress. */
+    long getSendDuration(long now) {
+        long startedAt = sendStartedAt;
+        return startedAt == 0 ? 0 : now - startedAt;
+    }
+
+    synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    void closeSlowConsumer(String cause) {
+        synchronized (this) {
+            if (closing) return;
+            closing = true;
+            buffer.clear();
+            bufferedBytes = 0;
+        }
+        String reason = resumeReason();
+        log.warn("Closing slow consumer session {}: {}, {}", getId(), cause, reason);
+        guard.sessionEvicted();
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE.withReason(reason));
+        } catch (Exception e) {
+            log.debug("Failed to close session {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    private void evictTyping() {
+        int evicted = 0;
+        for (Iterator<Frame> it = buffer.iterator(); it.hasNext(); ) {
+            Frame frame = it.next();
+            if (frame.typing) {
+                it.remove();
+                bufferedBytes -= frame.size;
+                evicted++;
+            }
+        }
+        if (evicted > 0) guard.typingDropped(evicted);
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame;
+            synchronized (this) {
+                frame = buffer.poll();
+                if (frame == null || closing) {
+                    draining = false;
+                    return;
+                }
+            }
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(frame.message);
+                if (frame.roomId != null) {
+                    Long seq = seqOf(frame.message);
+                    if (seq != null) resumeSeqs.merge(frame.roomId, seq, Math::max);
+                }
+            } catch (Exception e) {
+                log.debug("Failed to send to session {}: {}", getId(), e.getMessage());
+            } finally {
+                sendStartedAt = 0;
+                synchronized (this) {
+                    bufferedBytes = Math.max(0, bufferedBytes - frame.size); // the buffer may be cleared on close
+                }
+            }
+        }
+    }
+
+    private String resumeReason() {
+        StringBuilder reason = new StringBuilder("slow consumer");
+        String separator = ", resume=";
+        for (Map.Entry<Long, Long> entry : resumeSeqs.entrySet()) {
+            String cursor = separator + entry.getKey() + ":" + entry.getValue();
+            if (reason.length() + cursor.length() > MAX_REASON_LENGTH) break;
+            reason.append(cursor);
+            separator = ",";
+        }
+        return reason.toString();
+    }
+
+    private static Long seqOf(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage textMessage) {
+            Matcher matcher = SEQ.matcher(textMessage.getPayload());
+            return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+        }
+        if (!(message instanceof BinaryMessage binaryMessage)) return null;
+        ByteBuffer frame = binaryMessage.getPayload().duplicate();
+        String headers = headersOf(frame);
+        PayloadFormat format = headers == null ? null : PayloadFormat.fromHeader(headerOf(headers, "content-type"));
+        if (format == null) return null;
+        byte[] body = new byte[frame.remaining()];
+        frame.get(body);
+        try {
+            return format.findLong(body, "seq");
+        } catch (IOException e) {
+            log.debug("Failed to read seq of a {} frame: {}", format, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Header block of a STOMP MESSAGE frame up to and including its last newline, null for other frames.
+     * For a binary frame the buffer is left positioned at the body.
+     */
+    private static String headersOf(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage textMessage) {
+            String frame = textMessage.getPayload();
+            if (!frame.startsWith("MESSAGE\n")) return null;
+            int headersEnd = frame.indexOf("\n\n");
+            return headersEnd < 0 ? null : frame.substring(0, headersEnd + 1);
+        }
+        if (message instanceof BinaryMessage binaryMessage) {
+            return headersOf(binaryMessage.getPayload().duplicate());
+        }
+        return null;
+    }
+
+    private static String headersOf(ByteBuffer frame) {
+        int start = frame.position();
+        for (int i = start; i + 1 < frame.limit(); i++) {
+            if (frame.get(i) == '\n' && frame.get(i + 1) == '\n') {
+                byte[] headers = new byte[i + 1 - start];
+                frame.get(headers);
+                frame.position(i + 2);
+                String block = new String(headers, StandardCharsets.UTF_8);
+                return block.startsWith("MESSAGE\n") ? block : null;
+            }
+        }
+        return null;
+    }
+
+    private static String headerOf(String headers, String name) {
+        String prefix = "\n" + name + ":";
+        int start = headers.indexOf(prefix);
+        if (start < 0) return null;
+        start += prefix.length();
+        int end = headers.indexOf('\n', start);
+        return end < 0 ? null : headers.substring(start, end);
+    }
+
+    private record Frame(WebSocketMessage<?> message, int size, boolean typing, Long roomId) {
+
+        static Frame of(WebSocketMessage<?> message) {
+            String headers = headersOf(message);
+            String destination = headers == null ? null : headerOf(headers, "destination");
+            boolean typing = destination != null && destination.startsWith("/topic/typing/");
+            Long roomId = null;
+            if (destination != null) {
+                Matcher matcher = ROOM_DESTINATION.matcher(destination);
+                if (matcher.matches()) roomId = Long.valueOf(matcher.group(1));
+            }
+            return new Frame(message, message.getPayloadLength(), typing, roomId);
+        }
+    }
+}
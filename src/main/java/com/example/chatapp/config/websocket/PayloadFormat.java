@@ -0,0 +1,82 @@
+package com.example.chatapp.config.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Payload encodings a native WebSocket client can ask for with the {@code payload-format}
+ * header of the STOMP CONNECT frame. Payloads are produced as JSON and transcoded token by token.
+ */
+public enum PayloadFormat {
+    JSON(new MimeType("application", "json"), new JsonFactory()),
+    CBOR(new MimeType("application", "cbor"), new CBORFactory()),
+    SMILE(new MimeType("application", "x-jackson-smile"), new SmileFactory());
+
+    /** Message header with the format to encode an outbound message in. */
+    public static final String HEADER = "payloadFormat";
+    /** STOMP CONNECT header a client negotiates the format with. */
+    public static final String CONNECT_HEADER = "payload-format";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final MimeType mimeType;
+    private final JsonFactory factory;
+
+    PayloadFormat(MimeType mimeType, JsonFactory factory) {
+        this.mimeType = mimeType;
+        this.factory = factory;
+    }
+
+    public MimeType getMimeType() {
+        return mimeType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    public byte[] fromJson(byte[] json) throws IOException {
+        if (this == JSON) return json;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = factory.createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** Value of a top-level integer field of an encoded object, or null when there is none. */
+    public Long findLong(byte[] data, String field) throws IOException {
+        try (JsonParser parser = factory.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals(name) && value == JsonToken.VALUE_NUMBER_INT) return parser.getLongValue();
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    /** Returns the format for a CONNECT header value, or null if it is unknown. */
+    public static PayloadFormat fromHeader(String value) {
+        if (value == null) return null;
+        for (PayloadFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.mimeType.toString().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.chatapp.config.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-connection payload format of native WebSocket sessions.
+ * <p>
+ * Sessions opened on the native endpoint may send {@code payload-format: cbor} (or {@code smile})
+ * in CONNECT. Outbound JSON messages of such sessions are marked with {@link PayloadFormat#HEADER}
+ * and an {@code application/octet-stream} content type, so the STOMP handler sends a binary frame;
+ * {@link com.example.chatapp.config.broker.PreEncodedStompEncoder} then writes the body in the
+ * negotiated format with its real content type. SockJS sessions always get JSON.
+ */
+@Component
+@Slf4j
+public class PayloadFormatNegotiator implements ChannelInterceptor, HandshakeInterceptor {
+    private static final String NATIVE_SESSION_ATTRIBUTE = "nativeWebSocket";
+
+    private final Map<String, PayloadFormat> formats = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(NATIVE_SESSION_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String requested = accessor.getFirstNativeHeader(PayloadFormat.CONNECT_HEADER);
+        if (requested == null || accessor.getSessionId() == null) return;
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        PayloadFormat format = PayloadFormat.fromHeader(requested);
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(NATIVE_SESSION_ATTRIBUTE))) {
+            log.debug("Session {} asked for {} payloads over SockJS, using JSON", accessor.getSessionId(), requested);
+        } else if (format == null) {
+            log.debug("Session {} asked for unknown payload format {}, using JSON", accessor.getSessionId(), requested);
+        } else if (format.isBinary()) {
+            formats.put(accessor.getSessionId(), format);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        formats.remove(event.getSessionId());
+    }
+
+    public PayloadFormat getFormat(String sessionId) {
+        return sessionId == null ? PayloadFormat.JSON : formats.getOrDefault(sessionId, PayloadFormat.JSON);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (formats.isEmpty()) return message;
+        MessageHeaders headers = message.getHeaders();
+        PayloadFormat format = getFormat(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (!format.isBinary()
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)
+                || !isJson(headers.get(MessageHeaders.CONTENT_TYPE))) {
+            return message;
+        }
+        return MessageBuilder.fromMessage(message)
+                .setHeader(PayloadFormat.HEADER, format)
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM)
+                .build();
+    }
+
+    private static boolean isJson(Object contentType) {
+        if (contentType == null) return false;
+        if (contentType instanceof MimeType mimeType) return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+        try {
+            return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(MimeTypeUtils.parseMimeType(contentType.toString()));
+        } catch (InvalidMimeTypeException e) {
+            // sent as is, the broker delivers it unchanged
+            log.debug("Invalid content type {}: {}", contentType, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.chatapp.config.websocket;
+
+import com.example.chatapp.config.InboundProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executor for {@code clientInboundChannel} that runs messages of one room on one thread.
+ * <p>
+ * Messages to room destinations ({@code /app/room/{id}}, {@code /app/typing/{id}}, {@code /app/join/{id}},
+ * subscriptions to {@code /topic/room/{id}} and so on) go to the stripe of the room id, everything else
+ * to the stripe of the session. Each stripe is a single thread with its own queue, so messages of a room
+ * are handled, stored and broadcast in the order they arrived, while different rooms run in parallel.
+ * It is a {@link TaskExecutor} because Spring registers it as the {@code clientInboundChannelExecutor} bean,
+ * which {@code webSocketMessageBrokerStats} injects by that type.
+ */
+@Component
+@Slf4j
+public class RoomStripedExecutor implements TaskExecutor {
+    private static final Pattern ROOM_DESTINATION = Pattern.compile("^/(?:app|topic)/(?:room|typing|join)/(\\d+)");
+
+    private final ThreadPoolExecutor[] stripes;
+
+    public RoomStripedExecutor(InboundProperties properties, MeterRegistry meterRegistry) {
+        int count = properties.getStripes();
+        if (count < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive, got " + count);
+        }
+        this.stripes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String name = "inbound-stripe-" + i;
+            ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            Gauge.builder("chat.inbound.queue.depth", stripe, s -> s.getQueue().size())
+                    .description("Inbound messages waiting for the stripe thread")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+            stripes[i] = stripe;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        stripeFor(task).execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // caught here so the stripe keeps its thread
+                log.error("Inbound message handling failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    private ThreadPoolExecutor stripeFor(Runnable task) {
+        long key = 0;
+        if (task instanceof MessageHandlingRunnable runnable) {
+            key = keyOf(runnable.getMessage());
+        }
+        return stripes[(int) Math.floorMod(key, (long) stripes.length)];
+    }
+
+    static long keyOf(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination != null) {
+            Matcher matcher = ROOM_DESTINATION.matcher(destination);
+            if (matcher.find()) return Long.parseLong(matcher.group(1));
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        return sessionId != null ? sessionId.hashCode() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.chatapp.config.websocket;
+
+import com.example.chatapp.config.WebSocketTransportProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps every WebSocket session into a {@link BufferedWebSocketSession} and watches them.
+ * <p>
+ * Sessions are drained by a fixed pool of {@code sendThreads}. A session whose current send
+ * has been blocked for longer than {@code sendTimeLimit} is closed by the watchdog, which frees
+ * the sender thread. Metrics: buffered bytes of all sessions, per-session high-water marks
+ * (recorded when the session ends), dropped typing frames and evicted sessions.
+ */
+@Component
+@Slf4j
+public class SlowConsumerGuard implements WebSocketHandlerDecoratorFactory {
+    private static final long WATCHDOG_INTERVAL_MS = 1000;
+
+    private final WebSocketTransportProperties properties;
+    private final Map<String, BufferedWebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService watchdog;
+    private final Counter typingDropped;
+    private final Counter evicted;
+    private final DistributionSummary highWaterMarks;
+
+    public SlowConsumerGuard(WebSocketTransportProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(properties.getSendThreads(), properties.getSendThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "ws-sender-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.scheduleWithFixedDelay(this::closeStalledSessions,
+                WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        this.typingDropped = Counter.builder("chat.websocket.frames.dropped")
+                .description("Typing frames dropped for sessions with a full buffer")
+                .tag("type", "typing")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("chat.websocket.sessions.evicted")
+                .description("Sessions closed as slow consumers")
+                .register(meterRegistry);
+        this.highWaterMarks = DistributionSummary.builder("chat.websocket.buffer.high.water")
+                .description("Highest number of bytes buffered by a session during its lifetime")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.buffer.bytes", sessions,
+                        s -> s.values().stream().mapToLong(BufferedWebSocketSession::getBufferedBytes).sum())
+                .description("Bytes buffered for all sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.sender.queue.depth", sender, e -> e.getQueue().size())
+                .description("Sessions waiting for a sender thread")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BufferedWebSocketSession buffered = new BufferedWebSocketSession(session, SlowConsumerGuard.this, sender);
+                sessions.put(session.getId(), buffered);
+                super.afterConnectionEstablished(buffered);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                BufferedWebSocketSession buffered = sessions.remove(session.getId());
+                if (buffered != null) {
+                    highWaterMarks.record(buffered.getHighWaterMark());
+                }
+                super.afterConnectionClosed(buffered != null ? buffered : session, closeStatus);
+            }
+        };
+    }
+
+    int getSendBufferSizeLimit() {
+        return properties.getSendBufferSizeLimit();
+    }
+
+    int getTypingDropThreshold() {
+        return properties.getTypingDropThreshold();
+    }
+
+    void typingDropped(int count) {
+        typingDropped.increment(count);
+    }
+
+    void sessionEvicted() {
+        evicted.increment();
+    }
+
+    private void closeStalledSessions() {
+        long now = System.currentTimeMillis();
+        for (BufferedWebSocketSession session : sessions.values()) {
+            // an exception escaping here would cancel the scheduled watchdog for good
+            try {
+                if (session.getSendDuration(now) > properties.getSendTimeLimit()) {
+                    session.closeSlowConsumer("send blocked for over " + properties.getSendTimeLimit() + " ms");
+                }
+            } catch (Exception e) {
+                log.warn("Failed to close stalled session {}", session.getId(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+        sender.shutdown();
+    }
+}
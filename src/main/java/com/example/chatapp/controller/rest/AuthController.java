@@ -161,7 +161,8 @@ public class AuthController {
      */
     @Operation(
             summary = "Refresh token",
-            description = "Generates a new access token using a valid refresh token"
+            description = "Generates a new access token and a new refresh token using a valid refresh token. " +
+                    "The presented refresh token is used up; presenting it again revokes every token of its sign-in"
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Token successfully refreshed",
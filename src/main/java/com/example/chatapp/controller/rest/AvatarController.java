@@ -4,6 +4,7 @@ import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.avatar.AvatarResponse;
 import com.example.chatapp.repository.UserRepository;
 import com.example.chatapp.service.AvatarStorageService;
+import com.example.chatapp.service.UserCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -29,6 +30,7 @@ public class AvatarController {
 
     private final AvatarStorageService avatarService;
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     @Operation(
             summary = "Upload avatar",
@@ -66,6 +68,7 @@ public class AvatarController {
             // Updating the user in the database
             user.setAvatarUrl(avatarUrl);
             userRepository.save(user);
+            userCache.evict(user);
 
             AvatarResponse response = new AvatarResponse("Avatar uploaded successfully", avatarUrl);
 
@@ -105,6 +108,7 @@ public class AvatarController {
                 avatarService.deleteAvatar(user.getAvatarUrl());
                 user.setAvatarUrl(null);
                 userRepository.save(user);
+                userCache.evict(user);
             }
 
             AvatarResponse response = new AvatarResponse("Avatar deleted successfully", "");
@@ -134,10 +138,10 @@ public class AvatarController {
             @Parameter(hidden = true) Authentication authentication) {
 
         String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
+        UserCache.CachedUser user = userCache.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        AvatarResponse response = new AvatarResponse("", user.getAvatarUrl());
+        AvatarResponse response = new AvatarResponse("", user.avatarUrl());
 
         return ResponseEntity.ok(response);
     }
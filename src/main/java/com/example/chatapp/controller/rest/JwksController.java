@@ -0,0 +1,43 @@
+package com.example.chatapp.controller.rest;
+
+import com.example.chatapp.service.JwtKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "JWKS API", description = "Public keys for verifying access tokens")
+public class JwksController {
+    private final JwtKeyService jwtKeyService;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = "application/jwk-set+json")
+    @Operation(
+            summary = "Get token verification keys",
+            description = """
+                Returns the public keys that verify access tokens as a JWK set (RFC 7517).
+                A token names its key in the `kid` header. The set also holds keys that no longer sign
+                but still verify unexpired tokens. Empty when tokens are signed with a shared secret (HS256).
+                """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully returned the key set"),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                .body(jwtKeyService.jwks());
+    }
+}
@@ -2,6 +2,7 @@ package com.example.chatapp.controller.rest;
 
 import com.example.chatapp.handler.exception.RoomNotFoundException;
 import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.model.dto.message.MessagePageDTO;
 import com.example.chatapp.service.MessageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -18,6 +19,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -52,7 +54,9 @@ public class MessageController {
 
     @Operation(
             summary = "Get messages by room ID",
-            description = "Returns the full list of messages for the specified chat room, ordered by timestamp ascending.",
+            description = "Returns the full list of messages for the specified chat room, ordered by id ascending. " +
+                    "Deprecated: loads the whole history, use /api/{room_id}/messages/page instead.",
+            deprecated = true,
             parameters = {
                     @Parameter(
                             name = "roomId",
@@ -81,6 +85,7 @@ public class MessageController {
                     )
             }
     )
+    @Deprecated
     @GetMapping("/{room_id}/messages")
     public ResponseEntity<List<MessageDTO>> getMessage(@PathVariable Long room_id) {
         List<MessageDTO> messages;
@@ -91,4 +96,60 @@ public class MessageController {
         }
         return ResponseEntity.ok(messages);
     }
+
+    @Operation(
+            summary = "Get a page of messages by room ID",
+            description = """
+                    Returns a page of messages for the specified chat room using keyset (cursor) pagination.
+                    Messages in the page are ordered by id ascending.
+                    - Without cursors: the latest messages of the room.
+                    - `before`: messages older than the given message id (scrolling back in history).
+                    - `after`: messages newer than the given message id (catching up).
+                    Pass `nextCursor` from the response as `before` (or `after`) to get the next page.
+                    """,
+            parameters = {
+                    @Parameter(
+                            name = "room_id",
+                            description = "Unique identifier of the chat room",
+                            required = true,
+                            in = ParameterIn.PATH,
+                            schema = @Schema(type = "integer", example = "123")
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Page of messages in the room",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MessagePageDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Both 'before' and 'after' are set",
+                            content = @Content(schema = @Schema(type = "string", example = "Wrong argument: Only one of 'before' and 'after' can be set"))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Room with given ID not found",
+                            content = @Content(schema = @Schema(type = "string", example = "Room not found"))
+                    )
+            }
+    )
+    @GetMapping("/{room_id}/messages/page")
+    public ResponseEntity<MessagePageDTO> getMessagesPage(
+            @PathVariable Long room_id,
+            @Parameter(description = "Return messages with id less than this cursor")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Return messages with id greater than this cursor")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Page size, 50 by default, at most 100")
+            @RequestParam(required = false) Integer size) {
+        MessagePageDTO page;
+        try {
+            page = messageService.getMessagesPage(room_id, before, after, size);
+        } catch (RoomNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(page);
+    }
 }
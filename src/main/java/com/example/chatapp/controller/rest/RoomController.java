@@ -2,6 +2,7 @@ package com.example.chatapp.controller.rest;
 
 import com.example.chatapp.handler.exception.RoomOwnershipLimitExceededException;
 import com.example.chatapp.model.dto.room.*;
+import com.example.chatapp.service.PresenceService;
 import com.example.chatapp.service.RoomService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -22,6 +23,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/rooms")
@@ -30,7 +32,10 @@ import java.util.List;
 @Tag(name = "Room API", description = "API for managing chat rooms")
 public class RoomController {
 
+    private static final int MAX_ONLINE_COUNT_ROOMS = 100;
+
     private final RoomService roomService;
+    private final PresenceService presenceService;
 
     @PostMapping
     @Operation(
@@ -88,6 +93,32 @@ public class RoomController {
         return ResponseEntity.ok(rooms);
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of available rooms",
+            description = """
+                    Returns available rooms, sorted by creation date descending, using keyset (cursor) pagination.
+                    - No total count is computed.
+                    - Pass `nextCursor` from the response as `cursor` to get the next page.
+                    - The first page may be up to a few seconds old.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of rooms returned",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RoomDirectoryPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User is not authenticated",
+                    content = @Content)
+    })
+    public ResponseEntity<RoomDirectoryPageDTO> getRoomDirectory(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, 20 by default, at most 100")
+            @RequestParam(required = false) Integer size) {
+        log.info("Request rooms page, cursor: {}", cursor);
+        return ResponseEntity.ok(roomService.getRoomDirectory(cursor, size));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get room details by ID",
             description = "Returns room information including last 10 messages.")
@@ -105,6 +136,31 @@ public class RoomController {
         return ResponseEntity.ok(roomService.getRoomById(id));
     }
 
+    @GetMapping("/online")
+    @Operation(summary = "Get online user counts of rooms",
+            description = """
+                    Returns the number of users connected to each of the given rooms, keyed by room ID.
+                    - Counts come from live WebSocket sessions, the database is not queried.
+                    - With clustering enabled, only sessions connected to the answering instance are counted.
+                    - Unknown rooms are reported with 0.
+                    - Up to 100 room IDs per request.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Online counts returned",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Too many room IDs",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User is not authenticated",
+                    content = @Content)
+    })
+    public ResponseEntity<Map<Long, Integer>> getOnlineCounts(
+            @RequestParam @Parameter(description = "Room IDs, comma separated", example = "1,2,3") List<Long> ids) {
+        if (ids.size() > MAX_ONLINE_COUNT_ROOMS) {
+            throw new IllegalArgumentException("At most " + MAX_ONLINE_COUNT_ROOMS + " room IDs are allowed");
+        }
+        return ResponseEntity.ok(presenceService.getOnlineCounts(ids));
+    }
+
     @GetMapping("/search")
     @Operation(
             summary = "Search chat rooms",
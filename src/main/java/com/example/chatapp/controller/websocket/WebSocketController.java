@@ -1,12 +1,15 @@
 package com.example.chatapp.controller.websocket;
 
 import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.model.dto.message.MessageReplayDTO;
 import com.example.chatapp.model.dto.message.SendMessageDTO;
 import com.example.chatapp.model.dto.websocket.JoinIntoRoomRequest;
 import com.example.chatapp.model.dto.websocket.JoinIntoRoomResponse;
 import com.example.chatapp.model.dto.websocket.TypingRequest;
 import com.example.chatapp.model.dto.websocket.TypingStatus;
 import com.example.chatapp.service.MessageService;
+import com.example.chatapp.service.RoomService;
+import com.example.chatapp.service.TypingService;
 import io.github.springwolf.bindings.stomp.annotations.StompAsyncOperationBinding;
 import io.github.springwolf.core.asyncapi.annotations.AsyncListener;
 import io.github.springwolf.core.asyncapi.annotations.AsyncMessage;
@@ -15,19 +18,27 @@ import io.github.springwolf.core.asyncapi.annotations.AsyncPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.security.Principal;
+
 @RestController
 @Slf4j
 public class WebSocketController {
 
     private final MessageService messageService;
+    private final TypingService typingService;
+    private final RoomService roomService;
 
     @Autowired
-    public WebSocketController(MessageService messageService) {
+    public WebSocketController(MessageService messageService, TypingService typingService, RoomService roomService) {
         this.messageService = messageService;
+        this.typingService = typingService;
+        this.roomService = roomService;
     }
 
 
@@ -92,15 +103,57 @@ public class WebSocketController {
     @StompAsyncOperationBinding
     public MessageDTO sendMessage(@DestinationVariable Long roomId, SendMessageDTO request) {
         log.info("Message in room {} from {}: {}", roomId, request.getSender(), request.getContent());
-        return messageService.saveAndReturn(roomId, request);
+        MessageDTO message = messageService.saveAndReturn(roomId, request);
+        typingService.stopped(roomId, request.getSender());
+        return message;
+    }
+
+    @SubscribeMapping("/room/{roomId}/replay")
+    @AsyncListener(
+            operation = @AsyncOperation(
+                    channelName = "/app/room/{roomId}/replay",
+                    description = "Client → server: subscribe after a reconnect with the 'last-seq' header " +
+                            "set to the last seen message seq",
+                    payloadType = Long.class,
+                    message = @AsyncMessage(
+                            name = "Replay subscription",
+                            description = "Subscription with the 'last-seq' header, no payload",
+                            contentType = "application/json"
+                    )
+            )
+    )
+    @AsyncPublisher(
+            operation = @AsyncOperation(
+                    channelName = "/app/room/{roomId}/replay",
+                    description = "Server → client: one reply with the messages missed since 'last-seq'. " +
+                            "The client subscribes to /topic/room/{roomId} first and drops live messages " +
+                            "with seq not greater than the replayed ones",
+                    payloadType = MessageReplayDTO.class,
+                    message = @AsyncMessage(
+                            name = "Missed messages",
+                            description = "Messages with seq greater than 'last-seq'",
+                            contentType = "application/json"
+                    )
+            )
+    )
+    @StompAsyncOperationBinding
+    public MessageReplayDTO replayMessages(@DestinationVariable Long roomId,
+                                           @Header(name = "last-seq", required = false) Long lastSeq,
+                                           Principal principal) {
+        log.info("Replay in room {} after seq {}", roomId, lastSeq);
+        MessageReplayDTO replay = messageService.replay(roomId, lastSeq);
+        if (lastSeq != null && principal != null) {
+            roomService.markRead(roomId, principal.getName(), lastSeq);
+        }
+        return replay;
     }
 
     @MessageMapping("/typing/{roomId}")
-    @SendTo("/topic/typing/{roomId}")
     @AsyncListener(
             operation = @AsyncOperation(
                     channelName = "/app/typing/{roomId}",
-                    description = "Client → server: sends a signal that the user is entering something in the room",
+                    description = "Client → server: sends a signal that the user is entering something in the room, " +
+                            "or stopped with typing=false",
                     payloadType = TypingRequest.class,
                     message = @AsyncMessage(
                             name = "Typing request",
@@ -111,22 +164,21 @@ public class WebSocketController {
     )
     @AsyncPublisher(
             operation = @AsyncOperation(
-                    channelName = "/topic/typing/{roomId}",
-                    description = "Server → clients: sends the name of the user who is typing to everyone in the room",
+                    channelName = "/topic/typing/{roomId}/batch",
+                    description = "Server → clients: at most once per interval, an array with everyone typing " +
+                            "in the room and the users who stopped since the previous array. " +
+                            "/topic/typing/{roomId} keeps receiving the same statuses one object per message",
                     payloadType = TypingStatus.class,
                     message = @AsyncMessage(
                             name = "Typing status",
-                            description = "Typing status containing name and flag true",
+                            description = "Array of typing statuses, each with a name and a flag",
                             contentType = "application/json"
                     )
             )
     )
     @StompAsyncOperationBinding
-    public TypingStatus personTyping(@DestinationVariable Long roomId, TypingRequest request) {
-        return TypingStatus.builder()
-                .username(request.getSenderName())
-                .isTyping(true)
-                .build();
+    public void personTyping(@DestinationVariable Long roomId, TypingRequest request) {
+        typingService.typing(roomId, request.getSenderName(), !Boolean.FALSE.equals(request.getTyping()));
     }
 
 
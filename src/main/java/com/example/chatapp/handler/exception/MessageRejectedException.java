@@ -0,0 +1,7 @@
+package com.example.chatapp.handler.exception;
+
+public class MessageRejectedException extends RuntimeException {
+    public MessageRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.chatapp.handler.exception;
+
+public class MessageTooLongException extends RuntimeException {
+    public MessageTooLongException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.chatapp.handler.exception;
+
+public class RefreshTokenException extends RuntimeException {
+    public RefreshTokenException(String message) {
+        super(message);
+    }
+}
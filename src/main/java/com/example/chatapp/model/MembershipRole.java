@@ -0,0 +1,6 @@
+package com.example.chatapp.model;
+
+public enum MembershipRole {
+    OWNER,
+    MEMBER
+}
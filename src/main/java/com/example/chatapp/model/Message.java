@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 
@@ -13,11 +14,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "message")
-public class Message {
+@Table(name = "message", indexes = {
+        @Index(name = "idx_message_room_id_id", columnList = "room_id, id"),
+        @Index(name = "idx_message_room_id_seq", columnList = "room_id, seq")
+})
+public class Message implements Persistable<Long> {
+    public static final int MAX_CONTENT_LENGTH = 255; // length of the content column
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    private Long id; // assigned by MessageIdGenerator, see MessageIdConfig
+    private Long seq; // per-room sequence number, see RoomSequenceService
     private String sender;
     private String content;
     private LocalDateTime timestamp;
@@ -25,4 +31,18 @@ public class Message {
     @JoinColumn(name = "room_id")
     private Room room;
 
+    @Transient
+    @Builder.Default
+    private boolean persisted = false;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        this.persisted = true;
+    }
 }
@@ -0,0 +1,49 @@
+package com.example.chatapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message the write-behind pipeline could not store. It was already broadcast,
+ * so it is kept here for inspection or a manual replay instead of being dropped.
+ * The room is a plain id, the room may be gone.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "message_dead_letter")
+public class MessageDeadLetter {
+    @Id
+    private Long id; // id of the message
+    private Long seq;
+    private Long roomId;
+    private String sender;
+    @Column(columnDefinition = "TEXT")
+    private String content;
+    private LocalDateTime timestamp;
+    @Column(columnDefinition = "TEXT")
+    private String error;
+    private int attempts;
+    private LocalDateTime failedAt;
+
+    public static MessageDeadLetter of(Message message, int attempts, Exception error) {
+        return MessageDeadLetter.builder()
+                .id(message.getId())
+                .seq(message.getSeq())
+                .roomId(message.getRoom().getId())
+                .sender(message.getSender())
+                .content(message.getContent())
+                .timestamp(message.getTimestamp())
+                .error(error.getMessage())
+                .attempts(attempts)
+                .failedAt(LocalDateTime.now())
+                .build();
+    }
+}
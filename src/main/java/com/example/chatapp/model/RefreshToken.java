@@ -7,7 +7,10 @@ import lombok.experimental.FieldDefaults;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family_id", columnList = "familyId"),
+        @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiryDate")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,13 +21,25 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     Long id;
 
-    @Column(nullable = false, unique = true)
-    String token;
+    // NOT NULL is set by migration V2 once rows from before hashing are backfilled, ddl-auto cannot add
+    // a NOT NULL column to a table with rows
+    @Column(unique = true)
+    String tokenHash; // Base64url of the SHA-256 of the token, the token itself is never stored
+
+    @Column
+    String familyId; // shared by all tokens rotated from one login
 
     @Column(nullable = false)
     LocalDateTime expiryDate;
 
+    LocalDateTime usedAt; // set when the token was rotated, presenting it again revokes the family
+
+    LocalDateTime revokedAt;
+
     @ManyToOne
     @JoinColumn(name = "users_id", referencedColumnName = "id")
     User user;
+
+    @Transient
+    String token; // only on a token just issued
 }
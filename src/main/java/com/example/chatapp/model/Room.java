@@ -1,5 +1,6 @@
 package com.example.chatapp.model;
 
+import com.example.chatapp.util.RoomSearchIndexer;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
@@ -7,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,11 +19,14 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
+@EntityListeners(RoomSearchIndexer.class)
 @Table(name = "room", indexes = {
         @Index(name = "idx_room_name", columnList = "name"),
         @Index(name = "idx_room_description", columnList = "description")
 })
 public class Room {
+    public static final int LAST_MESSAGE_SNIPPET_LENGTH = 100;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -48,16 +53,23 @@ public class Room {
     @Min(2)
     @Max(100)
     private Long memberLimit;
-    @ManyToMany
-    private List<User> members;
+    // written only by the counter updates of RoomRepository, so saving a stale entity never overwrites it
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer memberCount = 0; // members are RoomMembership rows
+    // newest message of the room, written with the messages by MessageBatchRepository
+    @Column(updatable = false)
+    private Long lastMessageId;
+    @Column(updatable = false, length = LAST_MESSAGE_SNIPPET_LENGTH)
+    private String lastMessageSnippet;
+    @Column(updatable = false)
+    private LocalDateTime lastMessageAt;
+    // seq of the latest message, allocated by RoomRepository.nextSeq on every node of the cluster
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long lastSeq = 0L;
     private LocalDateTime createdAt;
     private LocalDateTime deleteAfter;
-
-    public void addMember(User user) {
-        this.members.add(user);
-    }
-
-    public void removeMember(User user) {
-        this.members.remove(user);
-    }
 }
@@ -0,0 +1,52 @@
+package com.example.chatapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's place in a room. The primary key (room_id, user_id) serves lookups by room,
+ * idx_room_membership_user_id serves lookups by user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "room_membership", indexes = {
+        @Index(name = "idx_room_membership_user_id", columnList = "user_id")
+})
+public class RoomMembership {
+    @EmbeddedId
+    private RoomMembershipId id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", insertable = false, updatable = false)
+    @ToString.Exclude
+    private Room room;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    @ToString.Exclude
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MembershipRole role;
+    @Column(nullable = false)
+    private LocalDateTime joinedAt;
+    private Long lastReadSeq; // seq of the last message the user has seen, from the replay cursor
+
+    public static RoomMembership of(Long roomId, Long userId, MembershipRole role) {
+        return RoomMembership.builder()
+                .id(new RoomMembershipId(roomId, userId))
+                .role(role)
+                .joinedAt(LocalDateTime.now())
+                .build();
+    }
+}
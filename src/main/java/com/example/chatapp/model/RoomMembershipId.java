@@ -0,0 +1,20 @@
+package com.example.chatapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class RoomMembershipId implements Serializable {
+    @Column(name = "room_id")
+    private Long roomId;
+    @Column(name = "user_id")
+    private Long userId;
+}
@@ -0,0 +1,41 @@
+package com.example.chatapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Key pair for signing access tokens, shared by all instances through the database.
+ * A key signs tokens until {@code retireAt} and verifies them until {@code expiresAt}.
+ */
+@Entity
+@Table(name = "signing_key", indexes = @Index(name = "idx_signing_key_expires_at", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SigningKey {
+    @Id
+    String kid;
+
+    @Column(nullable = false)
+    String algorithm; // RS256 or EdDSA
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    String publicKey; // Base64 of the X.509 encoding
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    String privateKey; // PKCS#8 encoding wrapped with jwt.key-encryption-key, see PrivateKeyCipher
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    LocalDateTime retireAt;
+
+    @Column(nullable = false)
+    LocalDateTime expiresAt;
+}
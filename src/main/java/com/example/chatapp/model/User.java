@@ -37,6 +37,8 @@ public class User {
     private String avatarUrl;
     LocalDate createdAt;
     Boolean isEmailVerified;
+    @Column(name = "token_version")
+    Integer tokenVersion; // access tokens carrying an older version are rejected, see TokenVersionService
 
     @ManyToMany
     @JoinTable(
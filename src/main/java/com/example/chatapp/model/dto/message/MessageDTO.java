@@ -17,6 +17,12 @@ import java.time.LocalDateTime;
 @Builder
 @Schema(description = "Saved message with a timestamp")
 public class MessageDTO {
+    @Schema(description = "Message ID, can be used as a history cursor", example = "1024")
+    Long id;
+
+    @Schema(description = "Per-room sequence number, used to resume after a reconnect", example = "42")
+    Long seq;
+
     @NotBlank
     @Schema(description = "Sender's name", example = "Alice", requiredMode = Schema.RequiredMode.REQUIRED)
     String sender;
@@ -30,6 +36,8 @@ public class MessageDTO {
 
     public static MessageDTO fromMessage(final Message message) {
         return MessageDTO.builder()
+                .id(message.getId())
+                .seq(message.getSeq())
                 .sender(message.getSender())
                 .content(message.getContent())
                 .timestamp(message.getTimestamp())
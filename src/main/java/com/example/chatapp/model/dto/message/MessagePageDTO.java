@@ -0,0 +1,29 @@
+package com.example.chatapp.model.dto.message;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Schema(description = "Page of room messages, ordered by id ascending")
+public class MessagePageDTO {
+    @Schema(description = "Messages of the page, oldest first")
+    List<MessageDTO> messages;
+
+    @Schema(description = "Cursor for the next page in the requested direction, null when there are no more messages",
+            example = "1001")
+    Long nextCursor;
+
+    @Schema(description = "Whether more messages exist in the requested direction", example = "true")
+    boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package com.example.chatapp.model.dto.message;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Schema(description = "Messages missed by a reconnecting subscriber")
+public class MessageReplayDTO {
+    @Schema(description = "Messages with seq greater than the last seen one, ordered by seq")
+    List<MessageDTO> messages;
+
+    @Schema(description = "Latest sequence number of the room at the time of the replay", example = "42")
+    long lastSeq;
+
+    @Schema(description = "True when the gap was too large to replay, the client should reload the history over REST",
+            example = "false")
+    boolean truncated;
+}
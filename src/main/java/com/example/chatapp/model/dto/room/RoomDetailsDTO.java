@@ -28,7 +28,7 @@ public class RoomDetailsDTO {
         return RoomDetailsDTO.builder()
                 .id(room.getId())
                 .name(room.getName())
-                .memberCount((long) room.getMembers().size())
+                .memberCount((long) room.getMemberCount())
                 .ownerName(room.getOwner().getUsername())
                 .build();
     }
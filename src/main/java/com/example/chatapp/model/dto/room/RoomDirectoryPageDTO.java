@@ -0,0 +1,29 @@
+package com.example.chatapp.model.dto.room;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@Schema(description = "Page of available rooms, newest first")
+public class RoomDirectoryPageDTO {
+    @Schema(description = "Rooms of the page")
+    List<RoomPreviewDTO> rooms;
+
+    @Schema(description = "Cursor for the next page, null when there are no more rooms",
+            example = "MjAyNS0wOS0wMVQxMjowMDowMF80Mg")
+    String nextCursor;
+
+    @Schema(description = "Whether more rooms exist", example = "true")
+    boolean hasMore;
+}
@@ -32,7 +32,7 @@ public class RoomFullInfoDTO {
                 .id(room.getId())
                 .name(room.getName())
                 .description(room.getDescription())
-                .membersCount((long) room.getMembers().size())
+                .membersCount((long) room.getMemberCount())
                 .memberLimit(room.getMemberLimit())
                 .ownerName((room.getOwner() != null) ? room.getOwner().getUsername() : null)
                 .createdAt(room.getCreatedAt())
@@ -15,6 +15,8 @@ import lombok.NoArgsConstructor;
 public class RoomMemberDTO {
     private Long id;
     private String username;
+    @Schema(description = "Whether the user has an open connection to the room", example = "true")
+    private boolean online;
 
     public static RoomMemberDTO fromUser(User user) {
         return RoomMemberDTO.builder()
@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Builder
 @Data
 @AllArgsConstructor
@@ -21,6 +23,8 @@ public class RoomPreviewDTO {
     String shortDescription;
     @Schema(description = "Content of the last message")
     String lastMessage;
+    @Schema(description = "Time of the last message")
+    LocalDateTime lastMessageAt;
     @Schema(description = "Number of participants")
     Long participantsCount;
 
@@ -29,15 +33,14 @@ public class RoomPreviewDTO {
                 ? room.getDescription().substring(0, Math.min(50, room.getDescription().length())).concat("...")
                 : "";
 
-        String lastMsg = (!room.getMessages().isEmpty())
-                ? room.getMessages().get(room.getMessages().size() - 1).getContent()
-                : "";
+        String lastMsg = room.getLastMessageSnippet() != null ? room.getLastMessageSnippet() : "";
         return RoomPreviewDTO.builder()
                 .id(room.getId())
                 .name(room.getName())
                 .shortDescription(shortDesc)
                 .lastMessage(lastMsg)
-                .participantsCount((long) room.getMembers().size())
+                .lastMessageAt(room.getLastMessageAt())
+                .participantsCount((long) room.getMemberCount())
                 .build();
     }
 }
@@ -3,6 +3,8 @@ package com.example.chatapp.model.dto.room;
 import com.example.chatapp.model.Room;
 import com.example.chatapp.model.dto.topic.TopicDTO;
 import com.example.chatapp.util.DevTools;
+import com.example.chatapp.util.RoomSearchEngine;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,6 +25,10 @@ public class RoomSearchResponse {
     private Long memberLimit;
     private Integer membersCount;
     private LocalDateTime createdAt;
+    @Schema(description = "HTML-escaped name with matched words wrapped in <b></b>, only when searching by a word")
+    private String highlightedName;
+    @Schema(description = "HTML-escaped fragment of the description with matched words wrapped in <b></b>, only when searching by a word")
+    private String highlightedDescription;
 
     public static RoomSearchResponse fromEntity(Room room) {
         return RoomSearchResponse.builder()
@@ -31,8 +37,15 @@ public class RoomSearchResponse {
                 .description(room.getDescription())
                 .topics(room.getTopics().stream().map(DevTools::topicsToDTO).collect(Collectors.toList()))
                 .memberLimit(room.getMemberLimit())
-                .membersCount(room.getMembers().size())
+                .membersCount(room.getMemberCount())
                 .createdAt(room.getCreatedAt())
                 .build();
     }
+
+    public static RoomSearchResponse fromEntity(Room room, RoomSearchEngine.RoomSearchHit hit) {
+        RoomSearchResponse response = fromEntity(room);
+        response.setHighlightedName(hit.highlightedName());
+        response.setHighlightedDescription(hit.highlightedDescription());
+        return response;
+    }
 }
@@ -0,0 +1,26 @@
+package com.example.chatapp.model.dto.websocket;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "Change of the online state of one user in a room")
+public class PresenceDelta {
+    @Schema(description = "Room ID", example = "1")
+    private Long roomId;
+
+    @Schema(description = "User Name", example = "Bob")
+    private String username;
+
+    @Schema(description = "true when the user came online in the room, false when the last session left", example = "true")
+    private boolean online;
+
+    @Schema(description = "Users online in the room after the change", example = "12")
+    private int onlineCount;
+}
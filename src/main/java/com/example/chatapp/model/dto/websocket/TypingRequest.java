@@ -15,4 +15,7 @@ import lombok.experimental.FieldDefaults;
 public class TypingRequest {
     @Schema(description = "Sender's name", example = "Charlie", requiredMode = Schema.RequiredMode.REQUIRED)
     String senderName;
+
+    @Schema(description = "false when the user stopped typing, true if not set", example = "true")
+    Boolean typing;
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.chatapp.repository;
+
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.Room;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC writer for messages, used by the write-behind pipeline.
+ * A whole batch goes to the database as one multi-row INSERT statement,
+ * followed in the same transaction by one update of the last-message projection and of the last seq per room.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MessageBatchRepository {
+    private static final String INSERT_PREFIX = "INSERT INTO message (id, seq, sender, content, timestamp, room_id) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+    // ordered by (timestamp, id), ids alone need not follow time across nodes and id generators,
+    // so an older batch flushed late never replaces a newer last message
+    private static final String UPDATE_LAST_MESSAGE = """
+            UPDATE room SET last_message_id = ?, last_message_snippet = ?, last_message_at = ?
+            WHERE id = ? AND (last_message_at IS NULL OR (last_message_at, last_message_id) < (?, ?))
+            """;
+    // seqs counted in memory on a single node (RoomSequenceService) are kept here, in cluster mode it is already set
+    private static final String UPDATE_LAST_SEQ = "UPDATE room SET last_seq = ? WHERE id = ? AND last_seq < ?";
+    private static final Comparator<Message> NEWEST = Comparator.comparing(Message::getTimestamp)
+            .thenComparing(Message::getId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public int insertAll(List<Message> messages) {
+        if (messages.isEmpty()) return 0;
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + messages.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        Object[] args = new Object[messages.size() * 6];
+        int i = 0;
+        for (Message message : messages) {
+            if (i > 0) sql.append(", ");
+            sql.append(ROW);
+            args[i++] = message.getId();
+            args[i++] = message.getSeq();
+            args[i++] = message.getSender();
+            args[i++] = message.getContent();
+            args[i++] = Timestamp.valueOf(message.getTimestamp());
+            args[i++] = message.getRoom().getId();
+        }
+        int inserted = jdbcTemplate.update(sql.toString(), args);
+        updateLastMessages(messages);
+        updateLastSeqs(messages);
+        return inserted;
+    }
+
+    private void updateLastMessages(List<Message> messages) {
+        Map<Long, Message> lastByRoom = new HashMap<>();
+        for (Message message : messages) {
+            lastByRoom.merge(message.getRoom().getId(), message,
+                    (current, next) -> NEWEST.compare(next, current) > 0 ? next : current);
+        }
+        List<Object[]> args = new ArrayList<>(lastByRoom.size());
+        for (Message message : lastByRoom.values()) {
+            Timestamp timestamp = Timestamp.valueOf(message.getTimestamp());
+            args.add(new Object[]{
+                    message.getId(),
+                    snippet(message.getContent()),
+                    timestamp,
+                    message.getRoom().getId(),
+                    timestamp,
+                    message.getId()
+            });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_LAST_MESSAGE, args);
+    }
+
+    private void updateLastSeqs(List<Message> messages) {
+        Map<Long, Long> maxSeqByRoom = new HashMap<>();
+        for (Message message : messages) {
+            maxSeqByRoom.merge(message.getRoom().getId(), message.getSeq(), Math::max);
+        }
+        List<Object[]> args = new ArrayList<>(maxSeqByRoom.size());
+        maxSeqByRoom.forEach((roomId, seq) -> args.add(new Object[]{seq, roomId, seq}));
+        jdbcTemplate.batchUpdate(UPDATE_LAST_SEQ, args);
+    }
+
+    private static String snippet(String content) {
+        if (content == null || content.length() <= Room.LAST_MESSAGE_SNIPPET_LENGTH) return content;
+        return content.substring(0, Room.LAST_MESSAGE_SNIPPET_LENGTH);
+    }
+}
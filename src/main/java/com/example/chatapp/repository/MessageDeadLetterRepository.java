@@ -0,0 +1,9 @@
+package com.example.chatapp.repository;
+
+import com.example.chatapp.model.MessageDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageDeadLetterRepository extends JpaRepository<MessageDeadLetter, Long> {
+}
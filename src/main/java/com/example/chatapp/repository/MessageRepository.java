@@ -1,6 +1,7 @@
 package com.example.chatapp.repository;
 
 import com.example.chatapp.model.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,9 +12,16 @@ import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByRoom_Id(Long roomId);
+    List<Message> findByRoom_IdOrderByIdAsc(Long roomId);
 
-    List<Message> findTop10ByRoomIdOrderByTimestampDesc(Long roomId);
+    // Keyset pagination over the (room_id, id) index
+    List<Message> findByRoom_IdOrderByIdDesc(Long roomId, Limit limit);
+
+    List<Message> findByRoom_IdAndIdLessThanOrderByIdDesc(Long roomId, Long before, Limit limit);
+
+    List<Message> findByRoom_IdAndIdGreaterThanOrderByIdAsc(Long roomId, Long after, Limit limit);
+
+    List<Message> findByRoom_IdAndSeqGreaterThanOrderBySeqAsc(Long roomId, Long seq, Limit limit);
 
     @Modifying
     @Query("DELETE FROM Message m WHERE m.room.id IN :roomIds")
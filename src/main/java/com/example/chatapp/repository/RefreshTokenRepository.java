@@ -3,18 +3,65 @@ package com.example.chatapp.repository;
 import com.example.chatapp.model.RefreshToken;
 import com.example.chatapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
 
-    void deleteAllByUser(User user);
-    
-    void deleteByUser(User user);
+    /**
+     * Marks an active token as rotated
+     *
+     * @return 0 if the token was rotated or revoked in the meantime
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.usedAt = :now WHERE t.id = :id AND t.usedAt IS NULL AND t.revokedAt IS NULL")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
 
-    void deleteByExpiryDateBefore(LocalDateTime now);
+    @Query("SELECT t.tokenHash FROM RefreshToken t WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    List<String> findActiveHashesByFamilyId(@Param("familyId") String familyId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT t.tokenHash FROM RefreshToken t WHERE t.user = :user AND t.revokedAt IS NULL")
+    List<String> findActiveHashesByUser(@Param("user") User user);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.user = :user AND t.revokedAt IS NULL")
+    int revokeAllByUser(@Param("user") User user, @Param("now") LocalDateTime now);
+
+    @Query("SELECT t.tokenHash FROM RefreshToken t WHERE t.revokedAt IS NOT NULL")
+    List<String> findRevokedHashes();
+
+    /**
+     * Deletes the tokens of all but the {@code keep} most recently issued families of the user
+     *
+     * @return number of deleted tokens
+     */
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE users_id = :userId AND family_id NOT IN " +
+            "(SELECT family_id FROM refresh_tokens WHERE users_id = :userId " +
+            "GROUP BY family_id ORDER BY MAX(id) DESC LIMIT :keep)", nativeQuery = true)
+    int deleteOldFamilies(@Param("userId") Long userId, @Param("keep") int keep);
+
+    /**
+     * Deletes up to {@code limit} expired tokens in a transaction of its own
+     *
+     * @return number of deleted tokens
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN " +
+            "(SELECT id FROM refresh_tokens WHERE expiry_date < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
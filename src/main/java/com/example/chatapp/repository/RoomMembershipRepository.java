@@ -0,0 +1,68 @@
+package com.example.chatapp.repository;
+
+import com.example.chatapp.model.MembershipRole;
+import com.example.chatapp.model.RoomMembership;
+import com.example.chatapp.model.RoomMembershipId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RoomMembershipRepository extends JpaRepository<RoomMembership, RoomMembershipId> {
+
+    @Query("""
+            SELECT COUNT(m) > 0 FROM RoomMembership m
+            WHERE m.id.roomId = :roomId AND m.id.userId = :userId
+            """)
+    boolean isMember(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    /**
+     * Adds the membership unless it exists, returns 0 when the user is already in the room.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO room_membership (room_id, user_id, role, joined_at)
+            SELECT :roomId, :userId, :role, :joinedAt
+            WHERE NOT EXISTS (SELECT 1 FROM room_membership WHERE room_id = :roomId AND user_id = :userId)
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("roomId") Long roomId,
+                       @Param("userId") Long userId,
+                       @Param("role") String role,
+                       @Param("joinedAt") LocalDateTime joinedAt);
+
+    @Modifying
+    @Query("DELETE FROM RoomMembership m WHERE m.id.roomId = :roomId AND m.id.userId = :userId")
+    int deleteMembership(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE RoomMembership m SET m.role = :role WHERE m.id.roomId = :roomId AND m.id.userId = :userId")
+    int updateRole(@Param("roomId") Long roomId,
+                   @Param("userId") Long userId,
+                   @Param("role") MembershipRole role);
+
+    /**
+     * Moves the last-read seq forward, returns 0 when the user is not in the room or has read further.
+     */
+    @Modifying
+    @Query("""
+            UPDATE RoomMembership m SET m.lastReadSeq = :seq
+            WHERE m.id.roomId = :roomId AND m.id.userId = :userId
+              AND (m.lastReadSeq IS NULL OR m.lastReadSeq < :seq)
+            """)
+    int advanceLastReadSeq(@Param("roomId") Long roomId,
+                           @Param("userId") Long userId,
+                           @Param("seq") Long seq);
+
+    @Modifying
+    @Query("DELETE FROM RoomMembership m WHERE m.id.roomId = :roomId")
+    void deleteByRoomId(@Param("roomId") Long roomId);
+
+    @Modifying
+    @Query("DELETE FROM RoomMembership m WHERE m.id.roomId IN :roomIds")
+    void deleteByRoomIdIn(@Param("roomIds") List<Long> roomIds);
+}
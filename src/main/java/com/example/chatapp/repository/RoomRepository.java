@@ -2,6 +2,7 @@ package com.example.chatapp.repository;
 
 import com.example.chatapp.model.Room;
 import com.example.chatapp.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,19 +24,61 @@ public interface RoomRepository extends JpaRepository<Room, Long>, JpaSpecificat
     @Query("UPDATE Room r SET r.owner = :user, r.deleteAfter = null WHERE r.id = :roomId AND r.owner IS NULL")
     int claimOwnership(@Param("roomId") Long roomId, @Param("user") User user);
 
-    @Query("select case when count(r) > 0 then true else false end " +
-            "from Room r join r.members m " +
-            "where r.id = :roomId and m.username = :username")
-    boolean isMember(@Param("roomId") Long roomId, @Param("username") String username);
-
     @Query("select r from Room r join fetch r.owner where r.id = :id")
     Room findByIdWithOwner(@Param("id") Long id);
 
     @Query("""
             SELECT r FROM Room r
-            WHERE size(r.members) < r.memberLimit
+            WHERE r.memberCount < r.memberLimit
             """)
     Page<Room> findAvailableRooms(Pageable pageable);
 
+    // keyset over (created_at, id), served by idx_room_available_created_at
+    @Query("""
+            SELECT r FROM Room r
+            WHERE r.memberCount < r.memberLimit
+            ORDER BY r.createdAt DESC, r.id DESC
+            """)
+    List<Room> findAvailableRooms(Limit limit);
+
+    @Query("""
+            SELECT r FROM Room r
+            WHERE r.memberCount < r.memberLimit
+              AND (r.createdAt, r.id) < (:createdAt, :id)
+            ORDER BY r.createdAt DESC, r.id DESC
+            """)
+    List<Room> findAvailableRoomsBefore(@Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Limit limit);
+
+    /**
+     * Takes a place in the room, returns 0 when the room is full or does not exist.
+     * The row lock taken here is the only one a join holds, until its transaction ends.
+     */
+    @Modifying
+    @Query("UPDATE Room r SET r.memberCount = r.memberCount + 1 WHERE r.id = :roomId AND r.memberCount < r.memberLimit")
+    int reservePlace(@Param("roomId") Long roomId);
+
+    @Modifying
+    @Query("UPDATE Room r SET r.owner = null, r.deleteAfter = :deleteAfter WHERE r.id = :roomId AND r.owner.id = :userId")
+    int releaseOwnership(@Param("roomId") Long roomId,
+                         @Param("userId") Long userId,
+                         @Param("deleteAfter") LocalDateTime deleteAfter);
+
+    @Modifying
+    @Query("UPDATE Room r SET r.memberCount = r.memberCount - 1 WHERE r.id = :roomId AND r.memberCount > 0")
+    int decrementMemberCount(@Param("roomId") Long roomId);
+
     List<Room> findAllByDeleteAfterBefore(LocalDateTime now);
+
+    /**
+     * Allocates the next message seq of the room, returns null when the room does not exist.
+     * The row lock of the update gives concurrent senders on every node distinct, increasing values.
+     */
+    @Transactional
+    @Query(value = "UPDATE room SET last_seq = last_seq + 1 WHERE id = :roomId RETURNING last_seq", nativeQuery = true)
+    Long nextSeq(@Param("roomId") Long roomId);
+
+    @Query("SELECT r.lastSeq FROM Room r WHERE r.id = :roomId")
+    Long findLastSeq(@Param("roomId") Long roomId);
 }
@@ -1,6 +1,7 @@
 package com.example.chatapp.repository;
 
 import com.example.chatapp.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -13,7 +14,7 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    @Query("SELECT u FROM Room r JOIN r.members u WHERE r.id = :roomId")
+    @Query("SELECT u FROM RoomMembership m JOIN m.user u WHERE m.id.roomId = :roomId")
     List<User> findMembersByRoomId(@Param("roomId") Long roomId);
 
     @Modifying
@@ -32,6 +33,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("UPDATE User u SET u.username = :new_username WHERE u.username = :username")
     void updateUsernameByUsername(@Param("username") String username, @Param("new_username") String new_username);
 
+    @Query("SELECT COALESCE(u.tokenVersion, 0) FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
     @Modifying
     @Query("UPDATE User u SET u.isEmailVerified = :is_email_verified WHERE u.username = :username")
     void updateIsEmailVerifiedByUsername(@Param("username") String username, @Param("is_email_verified") Boolean email);
@@ -44,6 +48,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
 
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+
     /**
      * Find a user by username
      *
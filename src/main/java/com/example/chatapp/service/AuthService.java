@@ -1,5 +1,6 @@
 package com.example.chatapp.service;
 
+import com.example.chatapp.config.PasswordHashingProperties;
 import com.example.chatapp.handler.exception.RoleNotFoundException;
 import com.example.chatapp.handler.exception.UnverifiedEmailException;
 import com.example.chatapp.handler.exception.UserEmailException;
@@ -29,15 +30,19 @@ public class AuthService {
     private final JwtUtil jwtUtil;
     private final RefreshTokenService refreshTokenService;
     private final RoleRepository roleRepository;
+    private final UserCache userCache;
+    private final PasswordHashingProperties passwordHashingProperties;
     private final static String EMAIL_REGEXP = "^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
 
     @Autowired
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, RefreshTokenService refreshTokenService, RoleRepository roleRepository) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, RefreshTokenService refreshTokenService, RoleRepository roleRepository, UserCache userCache, PasswordHashingProperties passwordHashingProperties) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.refreshTokenService = refreshTokenService;
         this.roleRepository = roleRepository;
+        this.userCache = userCache;
+        this.passwordHashingProperties = passwordHashingProperties;
     }
 
     public AuthResponse register(RegisterRequest request) {
@@ -63,7 +68,7 @@ public class AuthService {
 
         user = userRepository.save(user);
 
-        String accessToken = jwtUtil.generateToken(user.getUsername(), user.getRoles());
+        String accessToken = jwtUtil.generateToken(user);
         RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
 
         return AuthResponse.builder()
@@ -91,7 +96,15 @@ public class AuthService {
             throw new UnverifiedEmailException("Email verification failed: " + user.getEmail() + " is not verified");
         }
 
-        String accessToken = jwtUtil.generateToken(user.getUsername(), user.getRoles());
+        if (passwordHashingProperties.isRehashOnLogin() && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            // the hash was made with a lower cost factor than configured now
+            user.setPassword(passwordEncoder.encode(request.getPassword()));
+            user = userRepository.save(user);
+            userCache.evict(user);
+            log.info("Password hash of user {} upgraded", user.getUsername());
+        }
+
+        String accessToken = jwtUtil.generateToken(user);
         RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
 
         return AuthResponse.builder()
@@ -102,23 +115,19 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(RefreshTokenRequest request) {
-        return refreshTokenService.findByToken(request.getRefreshToken())
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String accessToken = jwtUtil.generateToken(user.getUsername(), user.getRoles());
-                    return AuthResponse.builder()
-                            .accessToken(accessToken)
-                            .refreshToken(request.getRefreshToken())
-                            .tokenType("Bearer")
-                            .build();
-                })
-                .orElseThrow(() -> new RuntimeException("Refresh token is not in database"));
+        // the presented token is used up, the client continues with the new one
+        RefreshToken refreshToken = refreshTokenService.rotate(request.getRefreshToken());
+        String accessToken = jwtUtil.generateToken(refreshToken.getUser());
+        return AuthResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken.getToken())
+                .tokenType("Bearer")
+                .build();
     }
 
     public void logout(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userCache.getReference(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        refreshTokenService.deleteByUser(user);
+        refreshTokenService.revokeAllByUser(user);
     }
 }
@@ -0,0 +1,198 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.model.SigningKey;
+import com.example.chatapp.repository.SigningKeyRepository;
+import com.example.chatapp.util.PrivateKeyCipher;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Signing keys of access tokens.
+ * <p>
+ * With {@code jwt.algorithm} RS256 or EdDSA, tokens are signed with the newest key pair from the
+ * {@code signing_key} table and carry its id in the {@code kid} header. A new pair is generated every
+ * {@code keyRotationInterval}. Older pairs keep verifying until the last token they signed has expired,
+ * and their public halves are served as a JWK set, so verifiers need no shared secret.
+ * Keys are reloaded every {@code keyRefreshInterval}, and at once when a token names an unknown key,
+ * so instances pick up keys made by each other. HS256 keeps the old shared secret and has no key set.
+ * <p>
+ * Private halves are stored wrapped with {@code jwt.keyEncryptionKey}, which is provided by the environment
+ * and never stored in the database. Rows written before wrapping are wrapped on the next refresh.
+ */
+@Service
+@Slf4j
+public class JwtKeyService {
+    public static final String HS256 = "HS256";
+    public static final String RS256 = "RS256";
+    public static final String EDDSA = "EdDSA";
+    private static final long UNKNOWN_KID_RELOAD_INTERVAL = 1000L; // milliseconds
+    private static final long CLOCK_SKEW = 3600L; // seconds a key outlives its last access token, covers reset tokens too
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final JwtProperties jwtProperties;
+    private final Key hmacKey;
+    private final PrivateKeyCipher cipher; // null for the shared secret
+    private volatile KeySet keys = new KeySet(null, null, Map.of(), List.of());
+    private volatile long lastReload;
+
+    @Autowired
+    public JwtKeyService(SigningKeyRepository signingKeyRepository, JwtProperties jwtProperties) {
+        this.signingKeyRepository = signingKeyRepository;
+        this.jwtProperties = jwtProperties;
+        this.hmacKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        String algorithm = jwtProperties.getAlgorithm();
+        if (!HS256.equals(algorithm) && !RS256.equals(algorithm) && !EDDSA.equals(algorithm)) {
+            throw new IllegalArgumentException("Unsupported JWT algorithm: " + algorithm);
+        }
+        if (HS256.equals(algorithm)) {
+            this.cipher = null;
+        } else if (jwtProperties.getKeyEncryptionKey() == null || jwtProperties.getKeyEncryptionKey().isBlank()) {
+            throw new IllegalStateException("jwt.key-encryption-key (JWT_KEY_ENCRYPTION_KEY) is required for " + algorithm
+                    + " signing keys, set it to Base64 of 32 random bytes");
+        } else {
+            this.cipher = new PrivateKeyCipher(jwtProperties.getKeyEncryptionKey());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.key-refresh-interval:60000}")
+    public synchronized void refresh() {
+        lastReload = System.currentTimeMillis();
+        if (isSharedSecret()) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SigningKey> active = new ArrayList<>(signingKeyRepository.findByExpiresAtAfterOrderByCreatedAtDesc(now));
+        SigningKey current = active.stream()
+                .filter(key -> key.getAlgorithm().equals(jwtProperties.getAlgorithm()) && key.getRetireAt().isAfter(now))
+                .findFirst()
+                .orElse(null);
+        if (current == null) {
+            current = signingKeyRepository.save(generate(now));
+            active.add(0, current);
+            log.info("New JWT signing key: kid - {}, algorithm - {}", current.getKid(), current.getAlgorithm());
+        }
+        int removed = signingKeyRepository.deleteExpired(now);
+        if (removed > 0) log.info("Removed {} expired JWT signing keys", removed);
+        for (SigningKey key : active) {
+            if (!PrivateKeyCipher.isWrapped(key.getPrivateKey())) {
+                key.setPrivateKey(cipher.wrap(key.getKid(), Base64.getDecoder().decode(key.getPrivateKey())));
+                signingKeyRepository.save(key);
+                log.info("Wrapped the stored private key of JWT signing key {}", key.getKid());
+            }
+        }
+
+        Map<String, PublicKey> publicKeys = new HashMap<>();
+        List<PublicJwk<?>> jwks = new ArrayList<>();
+        for (SigningKey key : active) {
+            PublicKey publicKey = decodePublic(key);
+            publicKeys.put(key.getKid(), publicKey);
+            jwks.add(Jwks.builder().key(publicKey).id(key.getKid()).algorithm(key.getAlgorithm()).publicKeyUse("sig").build());
+        }
+        keys = new KeySet(current.getKid(), decodePrivate(current), Map.copyOf(publicKeys), List.copyOf(jwks));
+    }
+
+    public boolean isSharedSecret() {
+        return HS256.equals(jwtProperties.getAlgorithm());
+    }
+
+    /** Id of the key new tokens are signed with, null for the shared secret. */
+    public String signingKeyId() {
+        return isSharedSecret() ? null : keys.signingKid();
+    }
+
+    public Key signingKey() {
+        return isSharedSecret() ? hmacKey : keys.signingKey();
+    }
+
+    /** Key that verifies a token with the given {@code kid} header, or null if there is none. */
+    public Key verificationKey(String kid) {
+        if (isSharedSecret()) return kid == null ? hmacKey : null;
+        if (kid == null) return null;
+
+        PublicKey key = keys.publicKeys().get(kid);
+        if (key == null && System.currentTimeMillis() - lastReload > UNKNOWN_KID_RELOAD_INTERVAL) {
+            // probably generated by another instance since the last refresh
+            refresh();
+            key = keys.publicKeys().get(kid);
+        }
+        return key;
+    }
+
+    /** Public keys that verify tokens, as a JWK set document. */
+    public Map<String, Object> jwks() {
+        return Map.of("keys", keys.jwks());
+    }
+
+    private SigningKey generate(LocalDateTime now) {
+        KeyPair pair = generateKeyPair(jwtProperties.getAlgorithm());
+        LocalDateTime retireAt = now.plus(jwtProperties.getKeyRotationInterval(), ChronoUnit.MILLIS);
+        String kid = UUID.randomUUID().toString();
+        return SigningKey.builder()
+                .kid(kid)
+                .algorithm(jwtProperties.getAlgorithm())
+                .publicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()))
+                .privateKey(cipher.wrap(kid, pair.getPrivate().getEncoded()))
+                .createdAt(now)
+                .retireAt(retireAt)
+                .expiresAt(retireAt.plusSeconds(jwtProperties.getExpiration() + CLOCK_SKEW))
+                .build();
+    }
+
+    private static KeyPair generateKeyPair(String algorithm) {
+        try {
+            if (RS256.equals(algorithm)) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                return generator.generateKeyPair();
+            }
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot generate a " + algorithm + " key pair", e);
+        }
+    }
+
+    private static KeyFactory keyFactory(String algorithm) throws NoSuchAlgorithmException {
+        return KeyFactory.getInstance(RS256.equals(algorithm) ? "RSA" : "Ed25519");
+    }
+
+    private static PublicKey decodePublic(SigningKey key) {
+        try {
+            return keyFactory(key.getAlgorithm())
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid public key " + key.getKid(), e);
+        }
+    }
+
+    private PrivateKey decodePrivate(SigningKey key) {
+        try {
+            return keyFactory(key.getAlgorithm())
+                    .generatePrivate(new PKCS8EncodedKeySpec(cipher.unwrap(key.getKid(), key.getPrivateKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid private key " + key.getKid(), e);
+        }
+    }
+
+    private record KeySet(String signingKid, PrivateKey signingKey, Map<String, PublicKey> publicKeys,
+                          List<PublicJwk<?>> jwks) {
+    }
+}
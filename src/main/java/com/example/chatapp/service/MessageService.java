@@ -1,22 +1,28 @@
 package com.example.chatapp.service;
 
 import com.example.chatapp.handler.exception.MessageEmptyException;
+import com.example.chatapp.handler.exception.MessageTooLongException;
 import com.example.chatapp.handler.exception.RoomNotFoundException;
 import com.example.chatapp.model.Message;
 import com.example.chatapp.model.Room;
 import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.model.dto.message.MessagePageDTO;
+import com.example.chatapp.model.dto.message.MessageReplayDTO;
 import com.example.chatapp.model.dto.message.SendMessageDTO;
 import com.example.chatapp.repository.MessageRepository;
 import com.example.chatapp.repository.RoomRepository;
 import com.example.chatapp.util.DevTools;
+import com.example.chatapp.util.MessageIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
@@ -26,14 +32,29 @@ import java.util.stream.Collectors;
 public class MessageService {
     private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
     private static final String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz1234567890";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_REPLAY_SIZE = 500;
 
     private final MessageRepository messageRepository;
     private final RoomRepository roomRepository;
+    private final MessageWriteBehindService messageWriteBehindService;
+    private final MessageIdGenerator messageIdGenerator;
+    private final RecentMessageCache recentMessageCache;
+    private final RoomSequenceService roomSequenceService;
 
     @Autowired
-    public MessageService(MessageRepository messageRepository, RoomRepository roomRepository) {
+    public MessageService(MessageRepository messageRepository, RoomRepository roomRepository,
+                          MessageWriteBehindService messageWriteBehindService,
+                          MessageIdGenerator messageIdGenerator,
+                          RecentMessageCache recentMessageCache,
+                          RoomSequenceService roomSequenceService) {
         this.messageRepository = messageRepository;
         this.roomRepository = roomRepository;
+        this.messageWriteBehindService = messageWriteBehindService;
+        this.messageIdGenerator = messageIdGenerator;
+        this.recentMessageCache = recentMessageCache;
+        this.roomSequenceService = roomSequenceService;
     }
 
     public List<MessageDTO> getAllMessagesByRoomId(Long roomId) {
@@ -41,12 +62,77 @@ public class MessageService {
         if (!roomRepository.existsById(roomId)) {
             throw new RoomNotFoundException("Room not found");
         }
-        List<Message> messages = messageRepository.findByRoom_Id(roomId).isEmpty() ?
-                new ArrayList<>() : messageRepository.findByRoom_Id(roomId);
+        List<Message> messages = messageRepository.findByRoom_IdOrderByIdAsc(roomId);
 
         return messages.stream().map(DevTools::messageToDTO).collect(Collectors.toList());
     }
 
+    /**
+     * Keyset page of room history. Without cursors returns the latest messages,
+     * with {@code before} goes back in history, with {@code after} goes forward.
+     */
+    public MessagePageDTO getMessagesPage(Long roomId, Long before, Long after, Integer size) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of 'before' and 'after' can be set");
+        }
+        int pageSize = (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        logger.info("Get messages page by room id: {}, before: {}, after: {}, size: {}", roomId, before, after, pageSize);
+        requireRoom(roomId);
+
+        if (before == null && after == null && pageSize < recentMessageCache.getCapacity()) {
+            return getLatestPageFromCache(roomId, pageSize);
+        }
+
+        // one extra row tells whether there is a next page
+        Limit limit = Limit.of(pageSize + 1);
+        List<Message> messages;
+        if (after != null) {
+            messages = messageRepository.findByRoom_IdAndIdGreaterThanOrderByIdAsc(roomId, after, limit);
+        } else if (before != null) {
+            messages = messageRepository.findByRoom_IdAndIdLessThanOrderByIdDesc(roomId, before, limit);
+        } else {
+            messages = messageRepository.findByRoom_IdOrderByIdDesc(roomId, limit);
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        List<MessageDTO> page = messages.stream()
+                .limit(pageSize)
+                .map(MessageDTO::fromMessage)
+                .collect(Collectors.toList());
+        if (after == null) {
+            Collections.reverse(page);
+        }
+
+        Long nextCursor = null;
+        if (hasMore) {
+            nextCursor = after != null ? page.get(page.size() - 1).getId() : page.get(0).getId();
+        }
+        return MessagePageDTO.builder()
+                .messages(page)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private MessagePageDTO getLatestPageFromCache(Long roomId, int pageSize) {
+        // the buffer holds more than a page, so an extra message means there is an older page
+        List<MessageDTO> latest = recentMessageCache.getLatest(roomId, pageSize + 1);
+        boolean hasMore = latest.size() > pageSize;
+        List<MessageDTO> page = hasMore ? latest.subList(1, latest.size()) : latest;
+        return MessagePageDTO.builder()
+                .messages(page)
+                .nextCursor(hasMore ? page.get(0).getId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private void requireRoom(Long roomId) {
+        // always asked from the database: a room deleted through another node is still buffered here
+        if (!roomRepository.existsById(roomId)) {
+            throw new RoomNotFoundException("Room not found");
+        }
+    }
+
     public String answerMessage(String message) {
         StringBuilder answerMessage = new StringBuilder();
         for (int i = 0; i < message.length(); i++) {
@@ -63,26 +149,80 @@ public class MessageService {
             logger.info("Message is empty: {}", request);
             throw new MessageEmptyException("Message content is empty");
         }
+        // checked before the message is broadcast, the write-behind insert would fail on it later
+        if (request.getContent().length() > Message.MAX_CONTENT_LENGTH) {
+            throw new MessageTooLongException("Message content is longer than " + Message.MAX_CONTENT_LENGTH + " characters");
+        }
 
-        Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new RoomNotFoundException("Room not found"));
-
+        // the seq update also checks that the room exists
+        long seq = roomSequenceService.nextSeq(roomId);
+        Room room = roomRepository.getReferenceById(roomId);
         Message message = Message.builder()
+                .id(messageIdGenerator.nextId())
+                .seq(seq)
                 .sender(request.getSender())
                 .content(request.getContent())
                 .timestamp(LocalDateTime.now())
                 .room(room)
                 .build();
 
-        messageRepository.save(message);
-        logger.info("Save message: {}", message.getContent());
+        messageWriteBehindService.enqueue(message);
+        logger.info("Queue message: {}", message.getContent());
 
-        return MessageDTO.builder()
-                .sender(message.getSender())
-                .content(message.getContent())
-                .timestamp(message.getTimestamp())
-                .build();
+        MessageDTO dto = MessageDTO.fromMessage(message);
+        recentMessageCache.append(roomId, dto);
+        return dto;
+    }
+
+    /**
+     * Takes into account a message sent through another node, relayed by the cluster fanout.
+     * The message is already stored or queued for storing by that node.
+     */
+    public void acceptRemoteMessage(Long roomId, MessageDTO message) {
+        recentMessageCache.append(roomId, message);
     }
 
+    /**
+     * Messages of the room with seq greater than {@code lastSeq}, for a reconnecting subscriber.
+     * Served from the recent message buffer when it covers the gap, otherwise from the database
+     * topped up with buffered messages that are not written yet.
+     */
+    public MessageReplayDTO replay(Long roomId, Long lastSeq) {
+        requireRoom(roomId);
+        long currentSeq = roomSequenceService.currentSeq(roomId);
+        long fromSeq = lastSeq == null ? 0 : lastSeq;
+        logger.info("Replay messages of room {} after seq {}, current seq {}", roomId, fromSeq, currentSeq);
+        if (fromSeq >= currentSeq) {
+            return new MessageReplayDTO(List.of(), currentSeq, false);
+        }
+        if (currentSeq - fromSeq > MAX_REPLAY_SIZE) {
+            return new MessageReplayDTO(List.of(), currentSeq, true);
+        }
+
+        // the buffer is ordered by id, messages of other nodes may carry ids out of seq order
+        List<MessageDTO> buffered = recentMessageCache.getLatest(roomId, recentMessageCache.getCapacity()).stream()
+                .filter(m -> m.getSeq() != null)
+                .sorted(Comparator.comparing(MessageDTO::getSeq))
+                .toList();
+        Long oldestBufferedSeq = buffered.isEmpty() ? null : buffered.get(0).getSeq();
+        if (oldestBufferedSeq != null && oldestBufferedSeq <= fromSeq + 1) {
+            return new MessageReplayDTO(afterSeq(buffered, fromSeq), currentSeq, false);
+        }
+
+        List<MessageDTO> gap = messageRepository
+                .findByRoom_IdAndSeqGreaterThanOrderBySeqAsc(roomId, fromSeq, Limit.of(MAX_REPLAY_SIZE))
+                .stream()
+                .map(MessageDTO::fromMessage)
+                .collect(Collectors.toList());
+        long lastStoredSeq = gap.isEmpty() ? fromSeq : gap.get(gap.size() - 1).getSeq();
+        gap.addAll(afterSeq(buffered, lastStoredSeq));
+        return new MessageReplayDTO(gap, currentSeq, false);
+    }
+
+    private static List<MessageDTO> afterSeq(List<MessageDTO> messages, long seq) {
+        return messages.stream()
+                .filter(m -> m.getSeq() > seq)
+                .toList();
+    }
 
 }
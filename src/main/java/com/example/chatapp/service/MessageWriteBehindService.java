@@ -0,0 +1,233 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.MessageWriteBehindProperties;
+import com.example.chatapp.handler.exception.MessageRejectedException;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageDeadLetter;
+import com.example.chatapp.repository.MessageBatchRepository;
+import com.example.chatapp.repository.MessageDeadLetterRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind pipeline for room messages.
+ * <p>
+ * Messages are put into a bounded queue and written by a single background thread,
+ * either when {@code batchSize} messages are collected or when {@code flushInterval} has passed
+ * since the first message of the batch. When the queue stays full for {@code offerTimeout} the
+ * message is rejected, it is never written ahead of queued messages. Enqueueing and stopping
+ * are mutually exclusive, so every accepted message is in the queue before the final drain.
+ * <p>
+ * A message that fails to insert is retried up to {@code maxAttempts} times, a message that
+ * can never be inserted (constraint violation) or runs out of attempts goes to
+ * {@code message_dead_letter}. Every path writes through {@link MessageBatchRepository},
+ * which keeps the room's last message up to date.
+ */
+@Service
+@Slf4j
+public class MessageWriteBehindService {
+    // PostgreSQL accepts at most 65535 bind parameters per statement, 6 per row
+    private static final int MAX_BATCH_SIZE = 65535 / 6;
+
+    private final MessageBatchRepository messageBatchRepository;
+    private final MessageDeadLetterRepository messageDeadLetterRepository;
+    private final MessageWriteBehindProperties properties;
+    private final BlockingQueue<Message> queue;
+    private final int batchSize;
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private boolean accepting; // guarded by lifecycle
+    private volatile boolean running;
+    private Thread worker;
+
+    @Autowired
+    public MessageWriteBehindService(MessageBatchRepository messageBatchRepository,
+                                     MessageDeadLetterRepository messageDeadLetterRepository,
+                                     MessageWriteBehindProperties properties) {
+        this.messageBatchRepository = messageBatchRepository;
+        this.messageDeadLetterRepository = messageDeadLetterRepository;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSize = Math.max(1, Math.min(properties.getBatchSize(), MAX_BATCH_SIZE));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Message write-behind is disabled, messages are saved synchronously");
+            return;
+        }
+        running = true;
+        accepting = true;
+        worker = new Thread(this::runFlushLoop, "message-write-behind");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Message write-behind started: queue capacity - {}, batch size - {}, flush interval - {} ms",
+                properties.getQueueCapacity(), batchSize, properties.getFlushInterval());
+    }
+
+    /**
+     * Queues the message for storing, or stores it at once when write-behind is disabled.
+     *
+     * @throws MessageRejectedException when the queue stays full or the pipeline is stopping
+     */
+    public void enqueue(Message message) {
+        if (!properties.isEnabled()) {
+            save(message);
+            return;
+        }
+        lifecycle.readLock().lock();
+        try {
+            if (!accepting) {
+                throw new MessageRejectedException("Message storage is shutting down");
+            }
+            if (!queue.offer(message, properties.getOfferTimeout(), TimeUnit.MILLISECONDS)) {
+                log.warn("Message write-behind queue is full, message from {} to room {} rejected",
+                        message.getSender(), message.getRoom().getId());
+                throw new MessageRejectedException("Too many messages, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageRejectedException("Interrupted while queueing the message");
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker == null) return;
+        lifecycle.writeLock().lock();
+        try {
+            accepting = false; // waits for enqueues in progress, later ones are rejected
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(properties.getShutdownTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("Message write-behind worker did not stop in time, {} messages left unsaved", queue.size());
+            return;
+        }
+        log.info("Message write-behind stopped");
+    }
+
+    private void runFlushLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushInterval());
+        while (running) {
+            try {
+                Message first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                collectBatch(batch, System.nanoTime() + intervalNanos);
+            } catch (InterruptedException e) {
+                break;
+            }
+            flush(batch);
+        }
+        drain(batch);
+    }
+
+    private void collectBatch(List<Message> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) return;
+            Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    private void drain(List<Message> batch) {
+        Thread.interrupted(); // the stop signal must not break the final JDBC calls
+        flush(batch);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        log.info("Message write-behind queue drained");
+    }
+
+    private void flush(List<Message> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            messageBatchRepository.insertAll(batch);
+            log.debug("Flushed {} messages", batch.size());
+        } catch (Exception e) {
+            log.error("Batch insert of {} messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Message message : batch) {
+                save(message);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Inserts one message, retrying transient failures. A message that cannot be inserted
+     * goes to the dead letter table, so it is not lost even though it was already broadcast.
+     */
+    private void save(Message message) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                messageBatchRepository.insertAll(List.of(message));
+                return;
+            } catch (Exception e) {
+                boolean permanent = e instanceof DataIntegrityViolationException;
+                if (permanent || attempt >= properties.getMaxAttempts()) {
+                    deadLetter(message, attempt, e);
+                    return;
+                }
+                log.warn("Insert of message {} failed (attempt {}), retrying: {}", message.getId(), attempt, e.getMessage());
+                if (!backOff(attempt)) {
+                    deadLetter(message, attempt, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(properties.getRetryBackoff() * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void deadLetter(Message message, int attempts, Exception error) {
+        try {
+            messageDeadLetterRepository.save(MessageDeadLetter.of(message, attempts, error));
+            log.error("Message {} from {} to room {} was not saved after {} attempts, moved to dead letters: {}",
+                    message.getId(), message.getSender(), message.getRoom().getId(), attempts, error.getMessage());
+        } catch (Exception e) {
+            log.error("Message {} from {} to room {} is lost, dead letter insert failed: {}. Content: {}",
+                    message.getId(), message.getSender(), message.getRoom().getId(), e.getMessage(),
+                    message.getContent());
+        }
+    }
+}
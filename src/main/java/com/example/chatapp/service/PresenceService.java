@@ -0,0 +1,194 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.dto.websocket.PresenceDelta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Who is online in which room, fed by STOMP session events.
+ * <p>
+ * A session is online in a room while it is subscribed to {@code /topic/room/{roomId}}.
+ * A user is identified by the authenticated principal of the session only, client headers such as
+ * the {@code login} of CONNECT are not trusted, and unauthenticated sessions are not tracked.
+ * When the first session of a user enters a room or the last one leaves, a {@link PresenceDelta} is sent to
+ * {@code /topic/room/{roomId}/presence}. The state is in memory only and covers this instance:
+ * with clustering enabled the deltas are not relayed to other nodes, and counts and online users
+ * are those of the sessions connected here.
+ */
+@Service
+@Slf4j
+public class PresenceService {
+    private static final Pattern ROOM_TOPIC = Pattern.compile("^/topic/room/(\\d+)$");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, RoomPresence> rooms = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PresenceService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String username = userOf(event);
+        if (accessor.getSessionId() == null || username == null) return;
+        sessions.put(accessor.getSessionId(), new SessionPresence(username));
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        Long roomId = roomOf(accessor.getDestination());
+        String username = userOf(event);
+        if (sessionId == null || accessor.getSubscriptionId() == null || roomId == null || username == null) return;
+
+        SessionPresence session = sessions.computeIfAbsent(sessionId, id -> new SessionPresence(username));
+        if (session.subscribe(accessor.getSubscriptionId(), roomId)) {
+            enter(roomId, session.username);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        SessionPresence session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session == null || accessor.getSubscriptionId() == null) return;
+        Long roomId = session.unsubscribe(accessor.getSubscriptionId());
+        if (roomId != null) {
+            leave(roomId, session.username);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionPresence session = sessions.remove(event.getSessionId());
+        if (session == null) return;
+        for (Long roomId : session.clear()) {
+            leave(roomId, session.username);
+        }
+    }
+
+    public int getOnlineCount(Long roomId) {
+        RoomPresence room = rooms.get(roomId);
+        return room == null ? 0 : room.users.size();
+    }
+
+    public Map<Long, Integer> getOnlineCounts(Collection<Long> roomIds) {
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        roomIds.forEach(roomId -> counts.put(roomId, getOnlineCount(roomId)));
+        return counts;
+    }
+
+    public boolean isOnline(Long roomId, String username) {
+        RoomPresence room = rooms.get(roomId);
+        return room != null && username != null && room.users.containsKey(username);
+    }
+
+    public Set<String> getOnlineUsers(Long roomId) {
+        RoomPresence room = rooms.get(roomId);
+        return room == null ? Set.of() : Set.copyOf(room.users.keySet());
+    }
+
+    private void enter(Long roomId, String username) {
+        int[] count = new int[1];
+        boolean[] first = new boolean[1];
+        // inside compute, so an emptied room cannot be removed while a session enters it
+        rooms.compute(roomId, (id, room) -> {
+            RoomPresence presence = room != null ? room : new RoomPresence();
+            first[0] = presence.users.merge(username, 1, Integer::sum) == 1;
+            count[0] = presence.users.size();
+            return presence;
+        });
+        if (first[0]) publish(roomId, username, true, count[0]);
+    }
+
+    private void leave(Long roomId, String username) {
+        int[] count = new int[1];
+        boolean[] last = new boolean[1];
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            last[0] = room.users.computeIfPresent(username, (key, sessions) -> sessions > 1 ? sessions - 1 : null) == null;
+            count[0] = room.users.size();
+            return room.users.isEmpty() ? null : room;
+        });
+        if (last[0]) publish(roomId, username, false, count[0]);
+    }
+
+    private void publish(Long roomId, String username, boolean online, int onlineCount) {
+        log.debug("User {} is {} in room {}, {} online", username, online ? "online" : "offline", roomId, onlineCount);
+        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/presence", PresenceDelta.builder()
+                .roomId(roomId)
+                .username(username)
+                .online(online)
+                .onlineCount(onlineCount)
+                .build());
+    }
+
+    private static String userOf(AbstractSubProtocolEvent event) {
+        Principal user = event.getUser();
+        return user != null ? user.getName() : null;
+    }
+
+    private static Long roomOf(String destination) {
+        if (destination == null) return null;
+        Matcher matcher = ROOM_TOPIC.matcher(destination);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private static final class RoomPresence {
+        // username -> number of the user's sessions in the room
+        private final Map<String, Integer> users = new ConcurrentHashMap<>();
+    }
+
+    private static final class SessionPresence {
+        private final String username;
+        private final Map<String, Long> subscriptions = new HashMap<>(); // subscriptionId -> roomId
+
+        private SessionPresence(String username) {
+            this.username = username;
+        }
+
+        /** Returns true if this is the first subscription of the session to the room. */
+        private synchronized boolean subscribe(String subscriptionId, Long roomId) {
+            if (subscriptions.containsKey(subscriptionId)) return false;
+            boolean first = !subscriptions.containsValue(roomId);
+            subscriptions.put(subscriptionId, roomId);
+            return first;
+        }
+
+        /** Returns the room the session left, or null if it is still subscribed to it. */
+        private synchronized Long unsubscribe(String subscriptionId) {
+            Long roomId = subscriptions.remove(subscriptionId);
+            return roomId == null || subscriptions.containsValue(roomId) ? null : roomId;
+        }
+
+        private synchronized List<Long> clear() {
+            List<Long> roomIds = subscriptions.values().stream().distinct().toList();
+            subscriptions.clear();
+            return roomIds;
+        }
+    }
+}
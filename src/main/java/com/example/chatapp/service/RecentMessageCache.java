@@ -0,0 +1,187 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.RecentMessagesProperties;
+import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.repository.MessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-room ring buffer of the last {@code capacity} messages.
+ * <p>
+ * The send path appends to the buffer, readers lazily complete it from the database
+ * on first access. A buffer created by the send path only holds messages sent since,
+ * so it is merged with the database rows (by message id) before it is read.
+ * Rooms idle for longer than {@code idleTimeout} are evicted, and the least recently
+ * used room is evicted when {@code maxRooms} is reached. Buffers are kept in access order,
+ * so both evictions start from the eldest entry instead of scanning every room.
+ */
+@Service
+@Slf4j
+public class RecentMessageCache {
+    private final MessageRepository messageRepository;
+    private final RecentMessagesProperties properties;
+    private final Map<Long, RoomBuffer> buffers; // guarded by itself
+
+    @Autowired
+    public RecentMessageCache(MessageRepository messageRepository, RecentMessagesProperties properties) {
+        this.messageRepository = messageRepository;
+        this.properties = properties;
+        this.buffers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RoomBuffer> eldest) {
+                return size() > properties.getMaxRooms();
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return properties.getCapacity();
+    }
+
+    public void append(Long roomId, MessageDTO message) {
+        getOrCreate(roomId).append(message);
+    }
+
+    /**
+     * Returns up to {@code limit} latest messages of the room, oldest first.
+     * The caller must make sure the room exists.
+     */
+    public List<MessageDTO> getLatest(Long roomId, int limit) {
+        RoomBuffer buffer = getOrCreate(roomId);
+        if (!buffer.isComplete()) {
+            List<MessageDTO> stored = messageRepository
+                    .findByRoom_IdOrderByIdDesc(roomId, Limit.of(properties.getCapacity()))
+                    .stream()
+                    .map(MessageDTO::fromMessage)
+                    .toList();
+            buffer.complete(stored);
+            log.debug("Recent messages of room {} loaded from database: {}", roomId, stored.size());
+        }
+        return buffer.latest(limit);
+    }
+
+    public void evict(Long roomId) {
+        synchronized (buffers) {
+            buffers.remove(roomId);
+        }
+    }
+
+    public void evictAll(Collection<Long> roomIds) {
+        synchronized (buffers) {
+            roomIds.forEach(buffers::remove);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.messages.recent.sweep-interval:60000}")
+    public void evictIdleRooms() {
+        long idleBefore = System.currentTimeMillis() - properties.getIdleTimeout();
+        int evicted = 0;
+        int cached;
+        synchronized (buffers) {
+            // eldest first, stops at the first room used since
+            Iterator<RoomBuffer> iterator = buffers.values().iterator();
+            while (iterator.hasNext() && iterator.next().getLastAccess() < idleBefore) {
+                iterator.remove();
+                evicted++;
+            }
+            cached = buffers.size();
+        }
+        if (evicted > 0) {
+            log.info("Evicted recent messages of {} idle rooms, {} rooms cached", evicted, cached);
+        }
+    }
+
+    private RoomBuffer getOrCreate(Long roomId) {
+        synchronized (buffers) {
+            // moves the room to the most recently used end, evicts the eldest room when over maxRooms
+            return buffers.computeIfAbsent(roomId, id -> new RoomBuffer(properties.getCapacity()));
+        }
+    }
+
+    static class RoomBuffer {
+        private final MessageDTO[] ring;
+        private int head; // index of the oldest message
+        private int size;
+        private boolean complete;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        RoomBuffer(int capacity) {
+            this.ring = new MessageDTO[capacity];
+        }
+
+        long getLastAccess() {
+            return lastAccess;
+        }
+
+        synchronized boolean isComplete() {
+            return complete;
+        }
+
+        synchronized void append(MessageDTO message) {
+            lastAccess = System.currentTimeMillis();
+            // messages relayed from other nodes may arrive after newer local ones, keep the buffer ordered by id
+            int position = size;
+            while (position > 0 && ring[(head + position - 1) % ring.length].getId() >= message.getId()) {
+                if (ring[(head + position - 1) % ring.length].getId().equals(message.getId())) return;
+                position--;
+            }
+            if (size == ring.length) {
+                if (position == 0) return; // older than everything in a full buffer
+                head = (head + 1) % ring.length;
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--) {
+                ring[(head + i) % ring.length] = ring[(head + i - 1) % ring.length];
+            }
+            ring[(head + position) % ring.length] = message;
+            size++;
+        }
+
+        /**
+         * Merges messages loaded from the database (newest first) with the ones appended
+         * since the buffer was created. Both sides are ordered by id, duplicates are dropped.
+         */
+        synchronized void complete(List<MessageDTO> storedNewestFirst) {
+            if (complete) return;
+            List<MessageDTO> appended = latest(size);
+            List<MessageDTO> merged = new ArrayList<>(storedNewestFirst.size() + appended.size());
+            long lastStoredId = Long.MIN_VALUE;
+            for (int i = storedNewestFirst.size() - 1; i >= 0; i--) {
+                MessageDTO message = storedNewestFirst.get(i);
+                merged.add(message);
+                lastStoredId = message.getId();
+            }
+            for (MessageDTO message : appended) {
+                if (message.getId() > lastStoredId) merged.add(message);
+            }
+            head = 0;
+            size = 0;
+            for (MessageDTO message : merged) {
+                append(message);
+            }
+            complete = true;
+        }
+
+        synchronized List<MessageDTO> latest(int limit) {
+            lastAccess = System.currentTimeMillis();
+            int count = Math.min(limit, size);
+            List<MessageDTO> result = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                result.add(ring[(head + i) % ring.length]);
+            }
+            return result;
+        }
+    }
+}
@@ -1,23 +1,44 @@
 package com.example.chatapp.service;
 
 import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.handler.exception.RefreshTokenException;
 import com.example.chatapp.model.RefreshToken;
 import com.example.chatapp.model.User;
 import com.example.chatapp.repository.RefreshTokenRepository;
+import com.example.chatapp.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Refresh tokens with rotation and reuse detection.
+ * <p>
+ * Only the SHA-256 of a token is stored. Each refresh marks the presented token as used and issues a new one
+ * of the same family. Presenting a used token again means it was stolen or replayed, so the whole family
+ * is revoked. Revoked tokens are kept in a Bloom filter and rejected without a query; a false positive
+ * (about {@code revocationFilterFpp}) costs that user a new sign-in.
+ */
 @Service
-@Transactional
+@Slf4j
+@Transactional(dontRollbackOn = RefreshTokenException.class)
 public class RefreshTokenService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtProperties jwtProperties;
+    private volatile BloomFilter revoked;
 
     @Autowired
     public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, JwtProperties jwtProperties) {
@@ -25,41 +46,123 @@ public class RefreshTokenService {
         this.jwtProperties = jwtProperties;
     }
 
+    @PostConstruct
+    public void init() {
+        rebuildRevocationFilter();
+    }
+
+    /**
+     * Issues the first token of a new family, one family per sign-in. Only the newest
+     * {@code refreshFamiliesPerUser} families of the user are kept, older sign-ins have to sign in again.
+     */
     public RefreshToken createRefreshToken(User user) {
-        refreshTokenRepository.deleteByUser(user);
+        RefreshToken refreshToken = issue(user, UUID.randomUUID().toString());
+        int pruned = refreshTokenRepository.deleteOldFamilies(user.getId(), jwtProperties.getRefreshFamiliesPerUser());
+        if (pruned > 0) log.debug("Deleted {} refresh tokens of older sign-ins of user {}", pruned, user.getUsername());
+        return refreshToken;
+    }
 
-        RefreshToken refreshToken = RefreshToken.builder()
-                .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiryDate(LocalDateTime.now().plusSeconds(jwtProperties.getRefreshExpiration()))
-                .build();
+    /**
+     * Exchanges a valid token for a new one of the same family
+     */
+    public RefreshToken rotate(String token) {
+        byte[] digest = hash(token);
+        if (revoked.mightContain(digest)) {
+            throw new RefreshTokenException("Refresh token was revoked. Please make a new signin request");
+        }
+        RefreshToken current = refreshTokenRepository.findByTokenHash(encode(digest))
+                .orElseThrow(() -> new RefreshTokenException("Refresh token is not in database"));
+        if (current.getRevokedAt() != null) {
+            revoked.add(digest); // revoked by another instance
+            throw new RefreshTokenException("Refresh token was revoked. Please make a new signin request");
+        }
 
-        return refreshTokenRepository.save(refreshToken);
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getExpiryDate().isBefore(now)) {
+            refreshTokenRepository.delete(current);
+            throw new RefreshTokenException("Refresh token was expired. Please make a new signin request");
+        }
+        if (current.getUsedAt() != null || refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            revokeFamily(current.getFamilyId(), now);
+            log.warn("Reuse of a rotated refresh token of user {}, token family {} revoked",
+                    current.getUser().getUsername(), current.getFamilyId());
+            throw new RefreshTokenException("Refresh token was already used. Please make a new signin request");
+        }
+        return issue(current.getUser(), current.getFamilyId());
     }
 
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+    public void revokeAllByUser(User user) {
+        addToFilter(refreshTokenRepository.findActiveHashesByUser(user));
+        refreshTokenRepository.revokeAllByUser(user, LocalDateTime.now());
     }
 
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().isBefore(LocalDateTime.now())) {
-            refreshTokenRepository.delete(token);
-            throw new RuntimeException("Refresh token was expired. Please make a new signin request");
+    /**
+     * Deletes expired tokens in chunks of {@code refreshSweepBatchSize}, each in its own transaction,
+     * so the sweep never holds long locks. The revocation filter is rebuilt afterwards to drop their hashes.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-sweep-interval:3600000}")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void deleteExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = jwtProperties.getRefreshSweepBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpiredChunk(now, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        if (total > 0) {
+            log.info("Deleted {} expired refresh tokens", total);
+            rebuildRevocationFilter();
         }
-        return token;
     }
 
-    public void deleteByUser(User user) {
-        refreshTokenRepository.deleteByUser(user);
+    private RefreshToken issue(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = refreshTokenRepository.save(RefreshToken.builder()
+                .user(user)
+                .tokenHash(encode(hash(token)))
+                .familyId(familyId)
+                .expiryDate(LocalDateTime.now().plusSeconds(jwtProperties.getRefreshExpiration()))
+                .build());
+        refreshToken.setToken(token);
+        return refreshToken;
     }
 
-    @Scheduled(fixedRate = 86400000)
-    public void deleteExpiredTokens() {
-        refreshTokenRepository.deleteByExpiryDateBefore(LocalDateTime.now());
+    private void revokeFamily(String familyId, LocalDateTime now) {
+        addToFilter(refreshTokenRepository.findActiveHashesByFamilyId(familyId));
+        refreshTokenRepository.revokeFamily(familyId, now);
     }
 
-    public void deleteAllByUser(User user) {
-        refreshTokenRepository.deleteAllByUser(user);
+    private void addToFilter(List<String> hashes) {
+        BloomFilter filter = revoked;
+        for (String hash : hashes) {
+            filter.add(Base64.getUrlDecoder().decode(hash));
+        }
     }
 
+    private void rebuildRevocationFilter() {
+        List<String> hashes = refreshTokenRepository.findRevokedHashes();
+        BloomFilter filter = new BloomFilter(Math.max(jwtProperties.getRevocationFilterSize(), hashes.size() * 2),
+                jwtProperties.getRevocationFilterFpp());
+        for (String hash : hashes) {
+            filter.add(Base64.getUrlDecoder().decode(hash));
+        }
+        revoked = filter;
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String encode(byte[] digest) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
 }
@@ -99,7 +99,7 @@ public class ResetPasswordService {
             userService.updatePasswordByEmail(email, encodedPassword);
 
             User user = userService.getUserByEmailOrThrow(email);
-            refreshTokenService.deleteAllByUser(user);
+            refreshTokenService.revokeAllByUser(user);
 
             log.info("Password successfully reset for the user {}", email);
 
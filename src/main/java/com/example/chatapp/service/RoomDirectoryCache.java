@@ -0,0 +1,53 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.RoomDirectoryProperties;
+import com.example.chatapp.model.dto.room.RoomDirectoryPageDTO;
+import com.example.chatapp.util.CacheEvictions;
+import com.example.chatapp.util.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of the first page of the room directory, keyed by page size.
+ * <p>
+ * Room creation, deletion, joins and leaves call {@link #invalidate}. A page loaded while an
+ * invalidation happened is returned but not cached, so a cleared cache is never refilled with
+ * the state from before the change.
+ */
+@Service
+public class RoomDirectoryCache {
+    private static final int MAX_PAGE_SIZES = 16;
+
+    private final RoomDirectoryProperties properties;
+    private final LruCache<Integer, RoomDirectoryPageDTO> firstPages = new LruCache<>(MAX_PAGE_SIZES);
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public RoomDirectoryCache(RoomDirectoryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = Counter.builder("chat.rooms.directory.cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.rooms.directory.cache.gets").tag("result", "miss").register(meterRegistry);
+    }
+
+    public RoomDirectoryPageDTO getFirstPage(int size, Supplier<RoomDirectoryPageDTO> loader) {
+        RoomDirectoryPageDTO cached = firstPages.get(size);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long generation = firstPages.generation();
+        RoomDirectoryPageDTO page = loader.get();
+        firstPages.putIfUnchanged(size, page, System.currentTimeMillis() + properties.getFirstPageTtl(), generation);
+        return page;
+    }
+
+    public void invalidate() {
+        CacheEvictions.evictNowAndAfterCompletion(firstPages::clear);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.handler.exception.RoomNotFoundException;
+import com.example.chatapp.repository.RoomRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-room message sequence numbers: 1, 2, 3...
+ * <p>
+ * On a single node the counters live in memory, start from {@code room.last_seq} and are written back
+ * with the message batches by {@link com.example.chatapp.repository.MessageBatchRepository}, so sending
+ * costs no database round trip. With {@code chat.cluster.enabled} every seq is allocated by the database
+ * ({@code UPDATE room SET last_seq = last_seq + 1}), so all nodes share one sequence per room; that is a
+ * synchronous row-locking write per message, and senders of one room queue on its row.
+ * A message rejected after its seq was allocated leaves a gap, which subscribers resuming by seq skip over.
+ */
+@Service
+public class RoomSequenceService {
+    private final RoomRepository roomRepository;
+    private final boolean shared;
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RoomSequenceService(RoomRepository roomRepository, ClusterProperties clusterProperties) {
+        this.roomRepository = roomRepository;
+        this.shared = clusterProperties.isEnabled();
+    }
+
+    /**
+     * @throws RoomNotFoundException when the room does not exist
+     */
+    public long nextSeq(Long roomId) {
+        if (!shared) {
+            return counter(roomId).incrementAndGet();
+        }
+        Long seq = roomRepository.nextSeq(roomId);
+        if (seq == null) {
+            throw new RoomNotFoundException("Room not found");
+        }
+        return seq;
+    }
+
+    public long currentSeq(Long roomId) {
+        AtomicLong counter = shared ? null : counters.get(roomId);
+        if (counter != null) return counter.get();
+        Long seq = roomRepository.findLastSeq(roomId);
+        return seq == null ? 0 : seq;
+    }
+
+    /** Forgets the counter of a deleted room, so a send to it finds the room missing. */
+    public void evict(Long roomId) {
+        counters.remove(roomId);
+    }
+
+    private AtomicLong counter(Long roomId) {
+        AtomicLong counter = counters.get(roomId);
+        if (counter != null) return counter;
+        // loaded outside the map, a query inside computeIfAbsent would block other rooms of the same bin
+        Long lastSeq = roomRepository.findLastSeq(roomId);
+        if (lastSeq == null) {
+            throw new RoomNotFoundException("Room not found");
+        }
+        AtomicLong loaded = new AtomicLong(lastSeq);
+        AtomicLong existing = counters.putIfAbsent(roomId, loaded);
+        return existing != null ? existing : loaded;
+    }
+}
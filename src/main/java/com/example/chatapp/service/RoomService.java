@@ -1,25 +1,33 @@
 package com.example.chatapp.service;
 
+import com.example.chatapp.config.RoomSearchProperties;
 import com.example.chatapp.handler.exception.RoomLimitMembersException;
 import com.example.chatapp.handler.exception.RoomNotFoundException;
 import com.example.chatapp.handler.exception.TopicNotFoundException;
 import com.example.chatapp.handler.exception.UserNotFoundException;
+import com.example.chatapp.model.MembershipRole;
 import com.example.chatapp.model.Room;
+import com.example.chatapp.model.RoomMembership;
 import com.example.chatapp.model.RoomType;
 import com.example.chatapp.model.Topic;
 import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.message.MessageDTO;
 import com.example.chatapp.model.dto.room.*;
 import com.example.chatapp.repository.MessageRepository;
+import com.example.chatapp.repository.RoomMembershipRepository;
 import com.example.chatapp.repository.RoomRepository;
 import com.example.chatapp.repository.TopicRepository;
 import com.example.chatapp.repository.UserRepository;
 import com.example.chatapp.specification.RoomSpecifications;
+import com.example.chatapp.util.CacheEvictions;
+import com.example.chatapp.util.RoomSearchEngine;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -27,10 +35,17 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor(onConstructor_ = {@Autowired})
@@ -38,10 +53,20 @@ import java.util.Objects;
 public class RoomService {
     private static final Long MAX_ROOMS_PER_USER = 5L;
     private static final Long MAX_MEMBER_PER_ROOM = 100L;
+    public static final int DEFAULT_DIRECTORY_PAGE_SIZE = 20;
+    public static final int MAX_DIRECTORY_PAGE_SIZE = 100;
     private final RoomRepository roomRepository;
+    private final RoomMembershipRepository roomMembershipRepository;
     private final UserRepository userRepository;
     private final TopicRepository topicRepository;
     private final MessageRepository messageRepository;
+    private final RecentMessageCache recentMessageCache;
+    private final RoomSequenceService roomSequenceService;
+    private final PresenceService presenceService;
+    private final UserCache userCache;
+    private final RoomDirectoryCache roomDirectoryCache;
+    private final RoomSearchEngine roomSearchEngine;
+    private final RoomSearchProperties roomSearchProperties;
 
     @Transactional
     public CreateRoomResponse createRoom(CreateRoomRequest request, Authentication authentication) {
@@ -50,7 +75,7 @@ public class RoomService {
                 ? MAX_MEMBER_PER_ROOM
                 : Math.min(request.getMemberLimit(), MAX_MEMBER_PER_ROOM);
 
-        User user = userRepository.findByUsername(authentication.getName())
+        User user = userCache.getReference(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
 
         List<Long> topicIds = request.getTopics().stream()
@@ -70,14 +95,16 @@ public class RoomService {
                 .description(request.getDescription())
                 .type(RoomType.DEFAULT_ROOM)
                 .memberLimit(memberLimit)
-                .members(new ArrayList<>(List.of(user)))
+                .memberCount(1)
                 .topics(validTopics)
                 .createdAt(LocalDateTime.now())
                 .build();
 
         Room savedRoom = roomRepository.save(room);
+        roomMembershipRepository.save(RoomMembership.of(savedRoom.getId(), user.getId(), MembershipRole.OWNER));
+        roomDirectoryCache.invalidate();
         log.info("Room created: id - {}, room name - {}, owner - {} ",
-                savedRoom.getId(), savedRoom.getName(), user.getUsername());
+                savedRoom.getId(), savedRoom.getName(), authentication.getName());
         return CreateRoomResponse.fromEntity(savedRoom);
     }
 
@@ -92,20 +119,71 @@ public class RoomService {
                 .map(RoomPreviewDTO::fromRoom);
     }
 
+    /**
+     * Keyset page of available rooms, newest first, without a total count.
+     * Pass {@code nextCursor} of the response as {@code cursor} to get the next page.
+     * The first page is served from {@link RoomDirectoryCache}.
+     */
+    public RoomDirectoryPageDTO getRoomDirectory(String cursor, Integer size) {
+        int pageSize = (size == null || size <= 0) ? DEFAULT_DIRECTORY_PAGE_SIZE : Math.min(size, MAX_DIRECTORY_PAGE_SIZE);
+        if (cursor == null || cursor.isEmpty()) {
+            return roomDirectoryCache.getFirstPage(pageSize,
+                    () -> toDirectoryPage(roomRepository.findAvailableRooms(Limit.of(pageSize + 1)), pageSize));
+        }
+        RoomCursor after = RoomCursor.decode(cursor);
+        return toDirectoryPage(
+                roomRepository.findAvailableRoomsBefore(after.createdAt(), after.id(), Limit.of(pageSize + 1)),
+                pageSize);
+    }
+
+    private RoomDirectoryPageDTO toDirectoryPage(List<Room> rooms, int pageSize) {
+        // one extra row tells whether there is a next page
+        boolean hasMore = rooms.size() > pageSize;
+        List<Room> page = hasMore ? rooms.subList(0, pageSize) : rooms;
+        Room last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return RoomDirectoryPageDTO.builder()
+                .rooms(page.stream().map(RoomPreviewDTO::fromRoom).toList())
+                .nextCursor(hasMore ? new RoomCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Position in the room directory, sent to clients as an opaque URL-safe string.
+     */
+    record RoomCursor(LocalDateTime createdAt, Long id) {
+        private static final char SEPARATOR = '_';
+
+        String encode() {
+            String raw = createdAt.toString() + SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static RoomCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf(SEPARATOR);
+                return new RoomCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+
     public RoomDetailsDTO getRoomById(Long id) {
         log.info("Get room by id - {}", id);
         Room room = roomRepository.findById(id).orElseThrow(() -> new RoomNotFoundException("Room id=" + id + " not found"));
         RoomDetailsDTO dto = RoomDetailsDTO.fromEntity(room);
-        dto.setLastTenMessages(messageRepository.findTop10ByRoomIdOrderByTimestampDesc(id)
-                .stream()
-                .map(MessageDTO::fromMessage)
-                .toList());
+        List<MessageDTO> lastTenMessages = new ArrayList<>(recentMessageCache.getLatest(id, 10));
+        Collections.reverse(lastTenMessages); // newest first
+        dto.setLastTenMessages(lastTenMessages);
         return dto;
     }
 
     @Transactional
     public boolean hasOwnershipLimitReached(Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        User user = userCache.getReference(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
         return roomRepository.countByOwner(user) < MAX_ROOMS_PER_USER;
     }
@@ -117,105 +195,154 @@ public class RoomService {
         }
         log.info("Delete room by id - {}", id);
         messageRepository.deleteByRoomId(id);
+        roomMembershipRepository.deleteByRoomId(id);
         roomRepository.deleteById(id);
+        roomDirectoryCache.invalidate();
+        recentMessageCache.evict(id);
+        CacheEvictions.evictNowAndAfterCompletion(() -> roomSequenceService.evict(id));
     }
 
+    /**
+     * Joins without loading the members: a conditional counter update guarded by the member limit,
+     * then a conditional insert of the membership. A join that finds the user already in the room
+     * gives its place back.
+     */
     @Transactional
     public RoomFullInfoDTO joinToRoom(Long id, Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        UserCache.CachedUser user = userCache.findByUsername(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
 
+        if (roomRepository.reservePlace(id) == 0) {
+            if (!roomRepository.existsById(id))
+                throw new RoomNotFoundException("Room id=" + id + " not found");
+            if (!roomMembershipRepository.isMember(id, user.id()))
+                throw new RoomLimitMembersException("Room is already full");
+        } else if (roomMembershipRepository.insertIfAbsent(id, user.id(),
+                MembershipRole.MEMBER.name(), LocalDateTime.now()) == 0) {
+            roomRepository.decrementMemberCount(id);
+        } else {
+            roomDirectoryCache.invalidate();
+        }
+
         Room room = roomRepository.findById(id)
-                .map(r -> {
-                    if (r.getMembers().size() >= r.getMemberLimit())
-                        throw new RoomLimitMembersException("Room is already full");
-                    if (r.getMembers().contains(user)) return r;
-                    r.addMember(user);
-                    return roomRepository.save(r);
-                })
                 .orElseThrow(() -> new RoomNotFoundException("Room id=" + id + " not found"));
-        log.info("User {} joined to room: id - {}, room name - {}", user.getUsername(), id, room.getName());
+        log.info("User {} joined to room: id - {}, room name - {}", authentication.getName(), id, room.getName());
         return RoomFullInfoDTO.fromEntity(room);
     }
 
+    /**
+     * Leaves with one delete of the membership and one counter update,
+     * an owner who leaves gives the room up for deletion in 7 days.
+     */
     @Transactional
     public void leaveRoom(Long id, Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        UserCache.CachedUser user = userCache.findByUsername(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
 
-        Room room = roomRepository.findById(id)
-                .map(r -> {
-                    if (!r.getMembers().contains(user))
-                        throw new UserNotFoundException("User not in room");
-                    if (r.getOwner().equals(user)) {
-                        r.setOwner(null);
-                        r.setDeleteAfter(LocalDateTime.now().plusDays(7));
-                    }
-                    r.removeMember(user);
-                    return roomRepository.save(r);
-                })
-                .orElseThrow(() -> new RoomNotFoundException("Room id=" + id + " not found"));
-        log.info("User {} out room: id - {}, room name - {}", user.getUsername(), id, room.getName());
+        if (roomMembershipRepository.deleteMembership(id, user.id()) == 0) {
+            if (!roomRepository.existsById(id))
+                throw new RoomNotFoundException("Room id=" + id + " not found");
+            throw new UserNotFoundException("User not in room");
+        }
+        roomRepository.decrementMemberCount(id);
+        roomRepository.releaseOwnership(id, user.id(), LocalDateTime.now().plusDays(7));
+        roomDirectoryCache.invalidate();
+        log.info("User {} out room: id - {}", authentication.getName(), id);
+    }
+
+    /**
+     * Records that the user has seen the messages of the room up to {@code seq}. Never moves back,
+     * and does nothing for users who are not members.
+     */
+    @Transactional
+    public void markRead(Long id, String username, long seq) {
+        userCache.findByUsername(username)
+                .ifPresent(user -> roomMembershipRepository.advanceLastReadSeq(id, user.id(), seq));
     }
 
     public List<RoomMemberDTO> getRoomMembers(Long id, Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        UserCache.CachedUser user = userCache.findByUsername(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
-        log.info("User {} get room members - {}", user.getUsername(), id);
+        log.info("User {} get room members - {}", user.username(), id);
         return userRepository.findMembersByRoomId(id)
                 .stream()
-                .map(RoomMemberDTO::fromUser)
+                .map(member -> {
+                    RoomMemberDTO dto = RoomMemberDTO.fromUser(member);
+                    dto.setOnline(presenceService.isOnline(id, member.getUsername()));
+                    return dto;
+                })
                 .toList();
     }
 
     @Transactional
     public void becomeOwner(Long id, Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        User user = userCache.getReference(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
 
         int updated = roomRepository.claimOwnership(id, user);
         if (updated == 0) throw new IllegalStateException("Someone else already became owner");
+        // left the room after the membership check, the claim is rolled back with the exception
+        if (roomMembershipRepository.updateRole(id, user.getId(), MembershipRole.OWNER) == 0)
+            throw new UserNotFoundException("User not in room");
     }
 
+    /**
+     * Rooms filtered by topics and membership. With a search word, only rooms found by the
+     * {@link RoomSearchEngine} are returned, by relevance unless a sort is requested.
+     */
     public Page<RoomSearchResponse> searchRooms(String search,
                                                 List<Long> topicIds,
                                                 boolean joined,
                                                 Pageable pageable,
                                                 Authentication authentication) {
-        Specification<Room> spec = buildSpecification(search, topicIds, pageable);
+        Specification<Room> spec = RoomSpecifications.hasTopics(topicIds);
 
         if (joined) {
-            User user = userRepository.findByUsername(authentication.getName())
+            UserCache.CachedUser user = userCache.findByUsername(authentication.getName())
                     .orElseThrow(() -> new UserNotFoundException("User not found: " + authentication.getName()));
-            spec = spec.and(RoomSpecifications.hasMember(user.getId()));
+            spec = spec.and(RoomSpecifications.hasMember(user.id()));
         }
 
         Pageable cleanedPageable = buildCleanedPageable(pageable);
 
-        return roomRepository.findAll(spec, cleanedPageable)
-                .map(RoomSearchResponse::fromEntity);
-    }
+        if (search == null || search.isBlank()) {
+            return roomRepository.findAll(spec, cleanedPageable)
+                    .map(RoomSearchResponse::fromEntity);
+        }
 
-    private Specification<Room> buildSpecification(String search, List<Long> topicIds, Pageable pageable) {
-        Specification<Room> spec = RoomSpecifications.hasSearchWord(search)
-                .and(RoomSpecifications.hasTopics(topicIds));
+        Map<Long, RoomSearchEngine.RoomSearchHit> hits = new LinkedHashMap<>();
+        roomSearchEngine.search(search, roomSearchProperties.getMaxHits()).forEach(hit -> hits.put(hit.roomId(), hit));
+        if (hits.isEmpty()) return Page.empty(cleanedPageable);
+        // the engine may still know rooms that are gone, the database has the final word
+        spec = spec.and(RoomSpecifications.hasIdIn(hits.keySet()));
 
-        for (Sort.Order order : pageable.getSort()) {
-            if (order.getProperty().equals("membersCount")) {
-                spec = spec.and(RoomSpecifications.orderByMembersCount(order.getDirection()));
-            }
+        if (cleanedPageable.getSort().isSorted()) {
+            return roomRepository.findAll(spec, cleanedPageable)
+                    .map(room -> RoomSearchResponse.fromEntity(room, hits.get(room.getId())));
         }
 
-        return spec;
+        Map<Long, Room> matching = roomRepository.findAll(spec).stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
+        List<Room> ranked = hits.keySet().stream()
+                .map(matching::get)
+                .filter(Objects::nonNull)
+                .toList();
+        int from = (int) Math.min(cleanedPageable.getOffset(), ranked.size());
+        int to = Math.min(from + cleanedPageable.getPageSize(), ranked.size());
+        List<RoomSearchResponse> page = ranked.subList(from, to).stream()
+                .map(room -> RoomSearchResponse.fromEntity(room, hits.get(room.getId())))
+                .toList();
+        return new PageImpl<>(page, cleanedPageable, ranked.size());
     }
 
     private Pageable buildCleanedPageable(Pageable pageable) {
         Sort sortDefault = Sort.unsorted();
 
         for (Sort.Order order : pageable.getSort()) {
-            if (!order.getProperty().equals("membersCount")) {
-                sortDefault = sortDefault.and(Sort.by(order));
-            }
+            // membersCount in the API is the memberCount column
+            sortDefault = sortDefault.and(Sort.by(order.getProperty().equals("membersCount")
+                    ? order.withProperty("memberCount")
+                    : order));
         }
 
         return PageRequest.of(
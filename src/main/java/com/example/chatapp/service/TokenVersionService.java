@@ -0,0 +1,58 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.UserRepository;
+import com.example.chatapp.util.CacheEvictions;
+import com.example.chatapp.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Revocation of access tokens by version.
+ * <p>
+ * Every access token carries the token version of its user. Bumping the version rejects all tokens
+ * issued before. Current versions are cached for {@code tokenVersionCacheTtl}, so other instances
+ * notice a revocation within that time, this instance immediately. A version loaded while an eviction
+ * happened is used but not cached, so an evicted version is never put back.
+ */
+@Service
+@Slf4j
+public class TokenVersionService {
+    private final UserRepository userRepository;
+    private final JwtProperties jwtProperties;
+    private final LruCache<Long, Integer> versions;
+
+    @Autowired
+    public TokenVersionService(UserRepository userRepository, JwtProperties jwtProperties) {
+        this.userRepository = userRepository;
+        this.jwtProperties = jwtProperties;
+        this.versions = new LruCache<>(jwtProperties.getTokenVersionCacheSize());
+    }
+
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        Integer current = versions.get(userId);
+        if (current == null) {
+            long generation = versions.generation();
+            current = userRepository.findTokenVersionById(userId).orElse(null);
+            if (current == null) return false; // user was deleted
+            versions.putIfUnchanged(userId, current,
+                    System.currentTimeMillis() + jwtProperties.getTokenVersionCacheTtl(), generation);
+        }
+        return current.equals(tokenVersion == null ? 0 : tokenVersion);
+    }
+
+    /**
+     * Bumps the token version of a managed user, tokens issued before are rejected once the transaction commits.
+     */
+    public void revoke(User user) {
+        user.setTokenVersion(user.getTokenVersion() == null ? 1 : user.getTokenVersion() + 1);
+        evict(user.getId());
+        log.info("Access tokens of user {} revoked", user.getUsername());
+    }
+
+    public void evict(Long userId) {
+        CacheEvictions.evictNowAndAfterCompletion(() -> versions.remove(userId));
+    }
+}
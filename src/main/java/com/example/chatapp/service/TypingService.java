@@ -0,0 +1,124 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.TypingProperties;
+import com.example.chatapp.model.dto.websocket.TypingStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks who is typing in each room.
+ * <p>
+ * Typing signals only refresh the user's expiry time, so repeated keystrokes cost no traffic.
+ * Every {@code flushInterval} each changed room gets one snapshot on {@code /topic/typing/{roomId}/batch}:
+ * an array of all users typing now ({@code isTyping=true}) and users who stopped since the last snapshot
+ * ({@code isTyping=false}). Users without a signal for {@code ttl} are stopped automatically.
+ * A snapshot covers the users typing on this instance and is not relayed to other cluster nodes.
+ * <p>
+ * With {@code legacyEvents} the same statuses also go to {@code /topic/typing/{roomId}} one object
+ * per message, the shape clients subscribed there have always received.
+ */
+@Service
+@Slf4j
+public class TypingService {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TypingProperties properties;
+    private final Map<Long, RoomTyping> rooms = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TypingService(SimpMessagingTemplate messagingTemplate, TypingProperties properties) {
+        this.messagingTemplate = messagingTemplate;
+        this.properties = properties;
+    }
+
+    public void typing(Long roomId, String username, boolean isTyping) {
+        if (username == null) return;
+        if (isTyping) {
+            long expiresAt = System.currentTimeMillis() + properties.getTtl();
+            // inside compute, so flush() cannot drop the room between lookup and update
+            rooms.compute(roomId, (id, room) -> {
+                RoomTyping typing = room != null ? room : new RoomTyping();
+                typing.start(username, expiresAt);
+                return typing;
+            });
+        } else {
+            stopped(roomId, username);
+        }
+    }
+
+    public void stopped(Long roomId, String username) {
+        RoomTyping room = rooms.get(roomId);
+        if (room != null && username != null) {
+            room.stop(username);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.typing.flush-interval:300}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, RoomTyping> entry : rooms.entrySet()) {
+            RoomTyping room = entry.getValue();
+            List<TypingStatus> snapshot = room.snapshot(now);
+            if (snapshot != null) {
+                messagingTemplate.convertAndSend("/topic/typing/" + entry.getKey() + "/batch", snapshot);
+                if (properties.isLegacyEvents()) {
+                    snapshot.forEach(status -> messagingTemplate.convertAndSend("/topic/typing/" + entry.getKey(), status));
+                }
+            }
+            rooms.computeIfPresent(entry.getKey(), (id, current) -> current.isIdle() ? null : current);
+        }
+    }
+
+    static class RoomTyping {
+        private final Map<String, Long> typing = new HashMap<>(); // username -> expires at
+        private final Set<String> stopped = new LinkedHashSet<>();
+        private boolean changed;
+
+        synchronized void start(String username, long expiresAt) {
+            if (typing.put(username, expiresAt) == null) {
+                stopped.remove(username);
+                changed = true;
+            }
+        }
+
+        synchronized void stop(String username) {
+            if (typing.remove(username) != null) {
+                stopped.add(username);
+                changed = true;
+            }
+        }
+
+        /**
+         * Expires stale typers and returns the room state if it changed since the last call, otherwise null.
+         */
+        synchronized List<TypingStatus> snapshot(long now) {
+            typing.entrySet().removeIf(e -> {
+                if (e.getValue() > now) return false;
+                stopped.add(e.getKey());
+                changed = true;
+                return true;
+            });
+            if (!changed) return null;
+            List<TypingStatus> snapshot = new ArrayList<>(typing.size() + stopped.size());
+            typing.keySet().forEach(username -> snapshot.add(new TypingStatus(username, true)));
+            stopped.forEach(username -> snapshot.add(new TypingStatus(username, false)));
+            stopped.clear();
+            changed = false;
+            return snapshot;
+        }
+
+        synchronized boolean isIdle() {
+            return typing.isEmpty() && !changed;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.UserCacheProperties;
+import com.example.chatapp.model.Role;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.UserRepository;
+import com.example.chatapp.util.CacheEvictions;
+import com.example.chatapp.util.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of users keyed by username.
+ * <p>
+ * Holds immutable snapshots, not entities, so nothing lazy or detached leaks into other sessions.
+ * Code that needs an entity to link to, e.g. a room member, gets a reference by the cached id
+ * without a query. Every change of a user must call {@link #evict}, the entry is removed at once
+ * and again after the transaction completes, and a user loaded across an eviction is not cached.
+ */
+@Service
+@Slf4j
+public class UserCache {
+    private final UserRepository userRepository;
+    private final UserCacheProperties properties;
+    private final LruCache<String, CachedUser> byUsername;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public UserCache(UserRepository userRepository, UserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.byUsername = new LruCache<>(properties.getMaxSize());
+        this.hits = Counter.builder("chat.users.cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.users.cache.gets").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("chat.users.cache.size", byUsername, LruCache::size).register(meterRegistry);
+    }
+
+    public Optional<CachedUser> findByUsername(String username) {
+        CachedUser cached = byUsername.get(username);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        long generation = byUsername.generation();
+        return userRepository.findWithRolesByUsername(username).map(user -> put(user, generation));
+    }
+
+    /**
+     * Entity reference for linking, e.g. as a room member or owner. Its state is loaded only when accessed.
+     */
+    public Optional<User> getReference(String username) {
+        return findByUsername(username).map(user -> userRepository.getReferenceById(user.id()));
+    }
+
+    public void evict(User user) {
+        evict(user.getUsername());
+    }
+
+    /**
+     * Evicts the user cached under {@code username}, after a rename it is the old username.
+     */
+    public void evict(String username) {
+        CacheEvictions.evictNowAndAfterCompletion(() -> byUsername.remove(username));
+    }
+
+    private CachedUser put(User user, long generation) {
+        CachedUser cached = CachedUser.of(user);
+        byUsername.putIfUnchanged(cached.username(), cached, System.currentTimeMillis() + properties.getTtl(), generation);
+        return cached;
+    }
+
+    public record CachedUser(Long id, String username, String email, String password, String avatarUrl,
+                             Boolean isEmailVerified, Set<String> roles) {
+        static CachedUser of(User user) {
+            return new CachedUser(user.getId(), user.getUsername(), user.getEmail(), user.getPassword(),
+                    user.getAvatarUrl(), user.getIsEmailVerified(),
+                    user.getRoles().stream().map(Role::getName).collect(Collectors.toUnmodifiableSet()));
+        }
+    }
+}
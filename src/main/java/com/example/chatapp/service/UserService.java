@@ -28,13 +28,17 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final EmailVerificationCodeRepository repository;
+    private final TokenVersionService tokenVersionService;
+    private final UserCache userCache;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, EmailVerificationCodeRepository emailVerificationCodeRepository) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, EmailVerificationCodeRepository emailVerificationCodeRepository, TokenVersionService tokenVersionService, UserCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.repository = emailVerificationCodeRepository;
+        this.tokenVersionService = tokenVersionService;
+        this.userCache = userCache;
     }
 
     public boolean isEmailVerified(String email) {
@@ -48,9 +52,12 @@ public class UserService {
         if (isUsernameTaken(newUsername)) {
             throw new UserUsernameException("User with username '" + newUsername + "' already exists");
         }
-        userRepository.updateUsernameByUsername(username, newUsername);
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User with username '" + username + "' not found"));
-        String token = jwtUtil.generateToken(username, user.getRoles());
+        user.setUsername(newUsername);
+        tokenVersionService.revoke(user); // tokens issued for the old username
+        userRepository.save(user);
+        userCache.evict(username);
+        String token = jwtUtil.generateToken(user);
         return AccessToken.builder()
                 .accessToken(token)
                 .tokenType("Bearer")
@@ -59,7 +66,11 @@ public class UserService {
 
     @Transactional
     public void updateUserPassword(String username, String newPassword) {
-        userRepository.updatePasswordByUsername(username, passwordEncoder.encode(newPassword));
+        User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User with username '" + username + "' not found"));
+        user.setPassword(passwordEncoder.encode(newPassword));
+        tokenVersionService.revoke(user);
+        userRepository.save(user);
+        userCache.evict(user);
     }
 
     @Transactional
@@ -71,10 +82,11 @@ public class UserService {
         if (!isEmailVerified(newEmail)) {
             userRepository.updateEmailByUsername(username, newEmail);
             userRepository.updateIsEmailVerifiedByUsername(username, false);
+            userCache.evict(username);
         }
 
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User with username '" + username + "' not found"));
-        String accessToken = jwtUtil.generateToken(username, user.getRoles());
+        String accessToken = jwtUtil.generateToken(user);
         String refreshToken = jwtUtil.generateResetToken(newEmail);
 
         return AuthResponse.builder()
@@ -93,6 +105,8 @@ public class UserService {
             throw new RuntimeException("Invalid credentials, password does not match");
         }
         userRepository.delete(user);
+        tokenVersionService.evict(user.getId());
+        userCache.evict(user);
     }
 
 
@@ -106,6 +120,7 @@ public class UserService {
             throw new VerificationException("Email " + email + " already verified");
         }
         userRepository.save(user);
+        userCache.evict(user);
         log.info("User verified");
     }
 
@@ -123,8 +138,9 @@ public class UserService {
     }
 
     public UserDTO getUserDTOByUsernameOrThrow(String username) {
-        return DevTools.userToDTO(userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User with username '" + username + "' not found")));
+        return userCache.findByUsername(username)
+                .map(DevTools::userToDTO)
+                .orElseThrow(() -> new UserNotFoundException("User with username '" + username + "' not found"));
     }
 
     public boolean isEmailExist(String email) {
@@ -135,8 +151,13 @@ public class UserService {
         return userRepository.existsByUsername(username);
     }
 
+    @Transactional
     public void updatePasswordByEmail(String email, String encodedPassword) {
-        userRepository.updatePasswordByEmail(email, encodedPassword);
+        User user = getUserByEmailOrThrow(email);
+        user.setPassword(encodedPassword);
+        tokenVersionService.revoke(user);
+        userRepository.save(user);
+        userCache.evict(user);
     }
 
     @Transactional
@@ -164,9 +185,15 @@ public class UserService {
 
             if (!passwordEncoder.matches(userData.getPassword(), user.getPassword())) {
                 user.setPassword(passwordEncoder.encode(userData.getPassword()));
+                needsNewAccessToken = true;
             }
         }
 
+        if (needsNewAccessToken) {
+            // a new username or password invalidates the tokens issued before
+            tokenVersionService.revoke(user);
+        }
+
         String refreshToken = null;
         if (userData.getEmail() != null && !user.getEmail().equals(userData.getEmail())) {
             String newEmail = userData.getEmail();
@@ -183,9 +210,10 @@ public class UserService {
         }
 
         userRepository.save(user);
+        userCache.evict(username);
 
         String accessToken = needsNewAccessToken
-                ? jwtUtil.generateToken(newUsername, user.getRoles())
+                ? jwtUtil.generateToken(user)
                 : null;
 
         return AuthResponse.builder()
@@ -196,9 +224,9 @@ public class UserService {
     }
 
     public boolean validatePassword(Authentication authentication, @NotBlank @Size(min = 8) String password) {
-        String currentPassword = userRepository.findByUsername(authentication.getName())
+        String currentPassword = userCache.findByUsername(authentication.getName())
                 .orElseThrow(() -> new UserNotFoundException("User with username '" + authentication.getName() + "' not found"))
-                .getPassword();
+                .password();
         if (password == null || password.isBlank()) {
             throw new UserPasswordException("The password cannot be blank.");
         }
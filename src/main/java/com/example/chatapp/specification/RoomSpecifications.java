@@ -1,29 +1,20 @@
 package com.example.chatapp.specification;
 
 import com.example.chatapp.model.Room;
+import com.example.chatapp.model.RoomMembership;
 import com.example.chatapp.model.Topic;
-import com.example.chatapp.model.User;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
-import org.springframework.data.domain.Sort;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
 import java.util.List;
 
 public class RoomSpecifications {
-    public static Specification<Room> hasSearchWord(String searchWord) {
-        return (root, query, cb) -> {
-            if (searchWord == null || searchWord.isEmpty()) return cb.conjunction();
-
-            query.distinct(true);
-
-            String pattern = "%" + searchWord.toLowerCase() + "%";
-            return cb.or(
-                    cb.like(cb.lower(root.get("name")), pattern),
-                    cb.like(cb.lower(root.get("description")), pattern),
-                    cb.like(cb.lower(root.join("topics").get("name")), pattern)
-            );
-        };
+    public static Specification<Room> hasIdIn(Collection<Long> roomIds) {
+        return (root, query, cb) -> root.get("id").in(roomIds);
     }
 
     public static Specification<Room> hasTopics(List<Long> topicIds) {
@@ -40,26 +31,15 @@ public class RoomSpecifications {
         };
     }
 
-    public static Specification<Room> orderByMembersCount(Sort.Direction direction) {
-        return (root, query, cb) -> {
-            Join<Room, User> membersJoin = root.join("members", JoinType.LEFT);
-            query.groupBy(root.get("id"));
-
-            if (direction.isAscending()) {
-                query.orderBy(cb.asc(cb.count(membersJoin.get("id"))));
-            } else {
-                query.orderBy(cb.desc(cb.count(membersJoin.get("id"))));
-            }
-
-            return cb.conjunction();
-        };
-    }
-
     public static Specification<Room> hasMember(Long userId) {
         return (root, query, cb) -> {
             if (userId == null) return cb.conjunction();
-            Join<Object, Object> members = root.join("members", JoinType.INNER);
-            return cb.equal(members.get("id"), userId);
+            Subquery<Integer> membership = query.subquery(Integer.class);
+            Root<RoomMembership> m = membership.from(RoomMembership.class);
+            membership.select(cb.literal(1)).where(
+                    cb.equal(m.get("id").get("roomId"), root.get("id")),
+                    cb.equal(m.get("id").get("userId"), userId));
+            return cb.exists(membership);
         };
     }
 }
@@ -0,0 +1,30 @@
+package com.example.chatapp.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Eviction of cached state changed by the current transaction.
+ */
+public final class CacheEvictions {
+
+    private CacheEvictions() {
+    }
+
+    /**
+     * Runs the eviction now and, inside a transaction, once more after it completes: a concurrent request
+     * may load the old state again before the change is committed. Together with
+     * {@link LruCache#putIfUnchanged} no state from before the change stays cached.
+     */
+    public static void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -7,11 +7,14 @@ import com.example.chatapp.model.dto.message.MessageDTO;
 import com.example.chatapp.model.dto.topic.CreateTopicDTO;
 import com.example.chatapp.model.dto.topic.TopicDTO;
 import com.example.chatapp.model.dto.user.UserDTO;
+import com.example.chatapp.service.UserCache;
 
 public class DevTools {
 
     public static MessageDTO messageToDTO(Message message) {
         return new MessageDTO(
+                message.getId(),
+                message.getSeq(),
                 message.getSender(),
                 message.getContent(),
                 message.getTimestamp()
@@ -27,6 +30,15 @@ public class DevTools {
                 .build();
     }
 
+    public static UserDTO userToDTO(UserCache.CachedUser user) {
+        return UserDTO.builder()
+                .email(user.email())
+                .username(user.username())
+                .password(user.password())
+                .isEmailVerified(user.isEmailVerified())
+                .build();
+    }
+
     public static TopicDTO topicsToDTO(Topic topic) {
         return TopicDTO.builder()
                 .id(topic.getId())
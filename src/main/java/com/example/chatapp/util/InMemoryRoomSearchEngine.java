@@ -0,0 +1,178 @@
+package com.example.chatapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * In-process inverted index with the semantics of {@link PostgresRoomSearchEngine},
+ * for tests and single-node databases without full-text search. The index is not persisted:
+ * with a {@link JdbcTemplate} it is loaded from the room table once the application is ready,
+ * afterwards rooms are indexed when the transaction that saved them commits.
+ * Each node holds its own index, so it cannot be used in a cluster.
+ */
+@Slf4j
+public class InMemoryRoomSearchEngine implements RoomSearchEngine, ApplicationListener<ApplicationReadyEvent> {
+    // ts_rank default weights of A, B and C
+    private static final double NAME_WEIGHT = 1.0;
+    private static final double DESCRIPTION_WEIGHT = 0.4;
+    private static final double TOPIC_WEIGHT = 0.2;
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final JdbcTemplate jdbcTemplate; // null when there is nothing to load
+
+    public InMemoryRoomSearchEngine() {
+        this(null);
+    }
+
+    public InMemoryRoomSearchEngine(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (jdbcTemplate == null) return;
+        Map<Long, List<String>> topics = new HashMap<>();
+        jdbcTemplate.query("SELECT rt.room_id, t.name FROM room_topics rt JOIN topic t ON t.id = rt.topics_id",
+                rs -> {
+                    topics.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getString(2));
+                });
+        List<Long> loaded = jdbcTemplate.query("SELECT id, name, description FROM room", (rs, rowNum) -> {
+            long roomId = rs.getLong("id");
+            apply(roomId, rs.getString("name"), rs.getString("description"), topics.getOrDefault(roomId, List.of()));
+            return roomId;
+        });
+        log.info("Room search index loaded: {} rooms", loaded.size());
+    }
+
+    @Override
+    public synchronized List<RoomSearchHit> search(String query, int limit) {
+        List<String> prefixes = RoomSearchEngine.words(query);
+        if (prefixes.isEmpty()) return List.of();
+
+        Set<Long> matching = null;
+        for (String prefix : prefixes) {
+            Set<Long> rooms = new HashSet<>();
+            postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values().forEach(rooms::addAll);
+            if (matching == null) matching = rooms;
+            else matching.retainAll(rooms);
+            if (matching.isEmpty()) return List.of();
+        }
+
+        return matching.stream()
+                .map(roomId -> {
+                    Document document = documents.get(roomId);
+                    return new RoomSearchHit(roomId, document.rank(prefixes),
+                            highlight(document.name(), prefixes), highlight(document.description(), prefixes));
+                })
+                .sorted(Comparator.comparingDouble(RoomSearchHit::rank).reversed()
+                        .thenComparing(RoomSearchHit::roomId, Comparator.reverseOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void index(Long roomId, String name, String description, List<String> topicNames) {
+        afterCommit(() -> apply(roomId, name, description, topicNames));
+    }
+
+    @Override
+    public void remove(Long roomId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                Document previous = documents.remove(roomId);
+                if (previous != null) unindex(roomId, previous);
+            }
+        });
+    }
+
+    /** Applies the change once the current transaction commits, a rolled back save never reaches the index. */
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private synchronized void apply(Long roomId, String name, String description, List<String> topicNames) {
+        Document previous = documents.remove(roomId);
+        if (previous != null) unindex(roomId, previous);
+        List<String> topics = topicNames != null ? List.copyOf(topicNames)
+                : previous != null ? previous.topicNames() : List.of();
+        Document document = new Document(name, description, topics);
+        documents.put(roomId, document);
+        for (String word : document.words()) {
+            postings.computeIfAbsent(word, w -> new HashSet<>()).add(roomId);
+        }
+    }
+
+    private void unindex(Long roomId, Document document) {
+        for (String word : document.words()) {
+            Set<Long> rooms = postings.get(word);
+            if (rooms == null) continue;
+            rooms.remove(roomId);
+            if (rooms.isEmpty()) postings.remove(word);
+        }
+    }
+
+    private static String highlight(String text, List<String> prefixes) {
+        if (text == null) return "";
+        StringBuilder highlighted = new StringBuilder(text.length() + 16);
+        Matcher matcher = WORD.matcher(text);
+        int end = 0;
+        while (matcher.find()) {
+            if (!matchesAny(matcher.group().toLowerCase(Locale.ROOT), prefixes)) continue;
+            // words are letters and digits only, the text between them is what needs escaping
+            highlighted.append(RoomSearchEngine.escapeHtml(text.substring(end, matcher.start())))
+                    .append(HIGHLIGHT_START).append(matcher.group()).append(HIGHLIGHT_END);
+            end = matcher.end();
+        }
+        return highlighted.append(RoomSearchEngine.escapeHtml(text.substring(end))).toString();
+    }
+
+    private static boolean matchesAny(String word, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (word.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private record Document(String name, String description, List<String> topicNames) {
+        Set<String> words() {
+            Set<String> words = new HashSet<>(RoomSearchEngine.words(name));
+            words.addAll(RoomSearchEngine.words(description));
+            topicNames.forEach(topic -> words.addAll(RoomSearchEngine.words(topic)));
+            return words;
+        }
+
+        double rank(List<String> prefixes) {
+            double rank = 0;
+            for (String prefix : prefixes) {
+                if (containsPrefix(RoomSearchEngine.words(name), prefix)) rank += NAME_WEIGHT;
+                else if (containsPrefix(RoomSearchEngine.words(description), prefix)) rank += DESCRIPTION_WEIGHT;
+                else rank += TOPIC_WEIGHT;
+            }
+            return rank;
+        }
+
+        private static boolean containsPrefix(List<String> words, String prefix) {
+            for (String word : words) {
+                if (word.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+}
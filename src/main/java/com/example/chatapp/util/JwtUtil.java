@@ -2,17 +2,22 @@ package com.example.chatapp.util;
 
 import com.example.chatapp.config.JwtProperties;
 import com.example.chatapp.model.Role;
+import com.example.chatapp.model.User;
+import com.example.chatapp.service.JwtKeyService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.ProtectedHeader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
-import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -20,33 +25,74 @@ import java.util.Set;
 @Component
 @Slf4j
 public class JwtUtil {
-    private final Key key;
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     private final JwtProperties jwtProperties;
+    private final JwtKeyService jwtKeyService;
+    private final JwtParser parser;
+    // SHA-256 of the token -> claims verified earlier, kept until the token expires; read by every request
+    private final StripedLruCache<String, Claims> verifiedClaims;
 
     @Autowired
-    public JwtUtil(JwtProperties jwtProperties) {
+    public JwtUtil(JwtProperties jwtProperties, JwtKeyService jwtKeyService) {
         this.jwtProperties = jwtProperties;
-        this.key = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.jwtKeyService = jwtKeyService;
+        this.parser = Jwts.parser()
+                .keyLocator(header -> jwtKeyService.verificationKey(
+                        header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null))
+                .build();
+        this.verifiedClaims = new StripedLruCache<>(jwtProperties.getClaimsCacheSize());
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and returns its claims, or null if the token is invalid.
+     * Claims of a valid token are cached, so repeated requests with the same token are not verified again.
+     */
+    public Claims verifyToken(String token) {
+        if (token == null || token.isBlank()) return null;
+        String tokenHash = hash(token);
+        Claims claims = verifiedClaims.get(tokenHash);
+        if (claims != null) return claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("JWT token validation failed: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(tokenHash, claims, claims.getExpiration().getTime());
+        }
+        return claims;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     public String generateResetToken(String email) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + 10 * 60 * 1000); // 10 минут
 
-        return Jwts.builder()
+        return signed(Jwts.builder())
                 .subject(email)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(key)
                 .claim("type", "reset")
                 .compact();
     }
 
     public boolean validateResetToken(String token) {
         try {
-            Claims claims = getClaims(token);
-            return "reset".equals(claims.get("type", String.class)) && !isTokenExpired(token);
-        } catch (JwtException e) {
+            Claims claims = getClaims(token); // the parser rejects expired tokens
+            return "reset".equals(claims.get("type", String.class));
+        } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
@@ -59,11 +105,26 @@ public class JwtUtil {
         return generateToken(username, jwtProperties.getExpiration(), roles);
     }
 
+    /**
+     * Access token that also carries the user id and token version,
+     * so the principal can be built from the claims without loading the user.
+     */
+    public String generateToken(User user) {
+        return buildToken(user.getUsername(), jwtProperties.getExpiration(), user.getRoles())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion() == null ? 0 : user.getTokenVersion())
+                .compact();
+    }
+
     public String generateTestToken(String username, Set<Role> roles) {
         return generateToken(username, jwtProperties.getTestExpiration(), roles);
     }
 
     public String generateToken(String username, Long expiration, Set<Role> roles) {
+        return buildToken(username, expiration, roles).compact();
+    }
+
+    private JwtBuilder buildToken(String username, Long expiration, Set<Role> roles) {
         List<String> rolesNames = roles.stream()
                 .map(Role::getName)
                 .toList();
@@ -71,34 +132,27 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration * 1000);
 
-        return Jwts.builder()
+        return signed(Jwts.builder())
                 .subject(username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(key)
-                .claim("roles", rolesNames)
-                .compact();
+                .claim(ROLES_CLAIM, rolesNames);
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) key)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            log.error("JWT token validation failed: {}", e.getMessage());
-            return false;
+    private JwtBuilder signed(JwtBuilder builder) {
+        String kid = jwtKeyService.signingKeyId();
+        if (kid != null) {
+            builder = builder.header().keyId(kid).and();
         }
+        return builder.signWith(jwtKeyService.signingKey());
+    }
+
+    public boolean validateToken(String token) {
+        return verifyToken(token) != null;
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public String extractUsername(String token) {
@@ -0,0 +1,81 @@
+package com.example.chatapp.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Small thread-safe LRU map with a per-entry expiry time.
+ * Holds at most {@code capacity} entries, the least recently used one is dropped first.
+ * <p>
+ * Read-through callers take the {@link #generation} before loading and store with {@link #putIfUnchanged},
+ * so a value loaded before a concurrent removal is not put back.
+ */
+public class LruCache<K, V> {
+    private final Map<K, Entry<V>> entries;
+    private long generation; // advanced by every removal
+
+    public LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the value, or null if it is absent or expired. */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value, long expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Puts the value unless something was removed since {@code generation} was taken.
+     *
+     * @return true if the value was put
+     */
+    public synchronized boolean putIfUnchanged(K key, V value, long expiresAt, long generation) {
+        if (this.generation != generation) return false;
+        put(key, value, expiresAt);
+        return true;
+    }
+
+    public synchronized void remove(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void removeIf(BiPredicate<K, V> predicate) {
+        generation++;
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value));
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
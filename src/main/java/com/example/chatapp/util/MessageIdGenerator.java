@@ -0,0 +1,10 @@
+package com.example.chatapp.util;
+
+/**
+ * Source of message ids. Ids are assigned by the application before the insert,
+ * so Hibernate and the write-behind pipeline can batch message writes.
+ * Implementations must return unique, increasing values and be thread-safe.
+ */
+public interface MessageIdGenerator {
+    long nextId();
+}
@@ -0,0 +1,38 @@
+package com.example.chatapp.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Id generator backed by a database sequence with the pooled-lo strategy.
+ * Each {@code nextval} call reserves a block of {@code allocationSize} ids,
+ * so the database is hit once per block instead of once per message.
+ * The sequence must be created with {@code INCREMENT BY allocationSize}.
+ */
+public class PooledSequenceIdGenerator implements MessageIdGenerator {
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueSql;
+    private final int allocationSize;
+
+    private long next;
+    private long limit;
+
+    public PooledSequenceIdGenerator(JdbcTemplate jdbcTemplate, String sequenceName, int allocationSize) {
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException("Allocation size must be positive, got " + allocationSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueSql = "SELECT nextval('" + sequenceName + "')";
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        if (next >= limit) {
+            Long low = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+            if (low == null) throw new IllegalStateException("Sequence returned no value");
+            next = low;
+            limit = low + allocationSize;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.chatapp.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Search backed by the {@code room.search_vector} tsvector column and its GIN index, see data.sql.
+ * Name, description and topic names are weighted A, B and C, queries are prefix tsqueries
+ * ranked with {@code ts_rank} and highlighted with {@code ts_headline}. The headline marks matches with
+ * private-use characters, removed from the text beforehand, and is HTML-escaped before they become tags.
+ * Rows are removed together with their room, so {@link #remove} has nothing to do.
+ */
+public class PostgresRoomSearchEngine implements RoomSearchEngine {
+    // 'simple' configuration: room names are in several languages, words are not stemmed
+    private static final String VECTOR = "setweight(to_tsvector('simple', coalesce(?, '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(?, '')), 'B')"
+            + " || setweight(to_tsvector('simple', coalesce(%s, '')), 'C')";
+    private static final String INDEX = "UPDATE room SET search_vector = " + VECTOR.formatted("?") + " WHERE id = ?";
+    private static final String REINDEX_KEEPING_TOPICS = "UPDATE room SET search_vector = " + VECTOR.formatted("""
+            (SELECT string_agg(t.name, ' ') FROM room_topics rt JOIN topic t ON t.id = rt.topics_id
+             WHERE rt.room_id = room.id)""") + " WHERE id = ?";
+    private static final String START_MARK = "\uE000";
+    private static final String END_MARK = "\uE001";
+    private static final String HEADLINE_OPTIONS = "StartSel=\"" + START_MARK + "\", StopSel=\"" + END_MARK + "\"";
+    private static final String SEARCH = """
+            SELECT r.id, ts_rank(r.search_vector, q) AS rank,
+                   ts_headline('simple', translate(r.name, '%2$s', ''), q, '%1$s, HighlightAll=true') AS name_headline,
+                   ts_headline('simple', translate(coalesce(r.description, ''), '%2$s', ''), q,
+                               '%1$s, MinWords=5, MaxWords=20') AS description_headline
+            FROM room r, to_tsquery('simple', ?) q
+            WHERE r.search_vector @@ q
+            ORDER BY rank DESC, r.id DESC
+            LIMIT ?
+            """.formatted(HEADLINE_OPTIONS, START_MARK + END_MARK);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresRoomSearchEngine(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<RoomSearchHit> search(String query, int limit) {
+        List<String> words = RoomSearchEngine.words(query);
+        if (words.isEmpty()) return List.of();
+        // words hold only letters and digits, nothing in them has a meaning in tsquery syntax
+        String tsQuery = words.stream().map(word -> word + ":*").collect(Collectors.joining(" & "));
+        return jdbcTemplate.query(SEARCH, (rs, rowNum) -> new RoomSearchHit(
+                rs.getLong("id"),
+                rs.getDouble("rank"),
+                toHtml(rs.getString("name_headline")),
+                toHtml(rs.getString("description_headline"))), tsQuery, limit);
+    }
+
+    private static String toHtml(String headline) {
+        return RoomSearchEngine.escapeHtml(headline).replace(START_MARK, HIGHLIGHT_START).replace(END_MARK, HIGHLIGHT_END);
+    }
+
+    @Override
+    public void index(Long roomId, String name, String description, List<String> topicNames) {
+        if (topicNames == null) {
+            jdbcTemplate.update(REINDEX_KEEPING_TOPICS, name, description, roomId);
+        } else {
+            jdbcTemplate.update(INDEX, name, description, String.join(" ", topicNames), roomId);
+        }
+    }
+
+    @Override
+    public void remove(Long roomId) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.chatapp.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * AES-GCM wrapping of signing private keys stored in the database.
+ * <p>
+ * The key-encryption key comes from the environment, never from the database, so a copy of the
+ * {@code signing_key} table alone cannot sign tokens. The key id is bound as associated data,
+ * a wrapped key cannot be moved to another row. Wrapped values are {@code v1:} followed by
+ * Base64 of the IV and the ciphertext.
+ */
+public class PrivateKeyCipher {
+    private static final String PREFIX = "v1:";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12; // bytes
+    private static final int TAG_LENGTH = 128; // bits
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param base64Key Base64 of a 128, 192 or 256 bit AES key
+     */
+    public PrivateKeyCipher(String base64Key) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(base64Key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Key-encryption key is not valid Base64", e);
+        }
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalArgumentException("Key-encryption key must be 16, 24 or 32 bytes, got " + bytes.length);
+        }
+        this.key = new SecretKeySpec(bytes, "AES");
+    }
+
+    /** Whether the stored value was written by {@link #wrap}, older rows hold the plain Base64 encoding. */
+    public static boolean isWrapped(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    public String wrap(String kid, byte[] encoded) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = cipher.doFinal(encoded);
+            return PREFIX + Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot wrap private key " + kid, e);
+        }
+    }
+
+    public byte[] unwrap(String kid, String stored) {
+        if (!isWrapped(stored)) {
+            throw new IllegalArgumentException("Private key " + kid + " is not wrapped");
+        }
+        byte[] data = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot unwrap private key " + kid + ", wrong key-encryption key?", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chatapp.util;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index of rooms by name, description and topic names.
+ * Every word of a query matches as a prefix of a word of the room, all of them must match.
+ * Hits are ordered by rank, a match in the name weighs more than one in the description or a topic.
+ * Implementations must be thread-safe.
+ */
+public interface RoomSearchEngine {
+    String HIGHLIGHT_START = "<b>";
+    String HIGHLIGHT_END = "</b>";
+    Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    List<RoomSearchHit> search(String query, int limit);
+
+    /**
+     * Adds or replaces the room. {@code topicNames} null keeps the topics already indexed for the room.
+     */
+    void index(Long roomId, String name, String description, List<String> topicNames);
+
+    void remove(Long roomId);
+
+    /**
+     * Highlights are HTML: the text is escaped with {@link #escapeHtml}, the markers are the only markup.
+     *
+     * @param highlightedName        name with matched words wrapped in {@link #HIGHLIGHT_START} and {@link #HIGHLIGHT_END}
+     * @param highlightedDescription the same for the description, possibly shortened to a fragment around the matches
+     */
+    record RoomSearchHit(Long roomId, double rank, String highlightedName, String highlightedDescription) {
+    }
+
+    /** Escapes the HTML special characters of room text, which is user input. */
+    static String escapeHtml(String text) {
+        return HtmlUtils.htmlEscape(text, "UTF-8");
+    }
+
+    /** Lower-cased words of the text, the unit both of indexing and of queries. */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return words;
+    }
+}
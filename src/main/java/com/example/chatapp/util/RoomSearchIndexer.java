@@ -0,0 +1,37 @@
+package com.example.chatapp.util;
+
+import com.example.chatapp.model.Room;
+import com.example.chatapp.model.Topic;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener of {@link Room} that keeps the {@link RoomSearchEngine} in sync with every save and delete.
+ * Topics that were not loaded have not changed, the engine keeps the indexed ones.
+ */
+@Component
+public class RoomSearchIndexer {
+    // resolved on first use, listeners are created while the entity manager factory is built
+    private final ObjectProvider<RoomSearchEngine> roomSearchEngine;
+
+    public RoomSearchIndexer(ObjectProvider<RoomSearchEngine> roomSearchEngine) {
+        this.roomSearchEngine = roomSearchEngine;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void index(Room room) {
+        boolean topicsLoaded = room.getTopics() != null && Hibernate.isInitialized(room.getTopics());
+        roomSearchEngine.getObject().index(room.getId(), room.getName(), room.getDescription(),
+                topicsLoaded ? room.getTopics().stream().map(Topic::getName).toList() : null);
+    }
+
+    @PostRemove
+    public void remove(Room room) {
+        roomSearchEngine.getObject().remove(room.getId());
+    }
+}
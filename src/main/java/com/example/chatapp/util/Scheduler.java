@@ -2,8 +2,12 @@ package com.example.chatapp.util;
 
 import com.example.chatapp.model.Room;
 import com.example.chatapp.repository.MessageRepository;
+import com.example.chatapp.repository.RoomMembershipRepository;
 import com.example.chatapp.repository.RoomRepository;
 import com.example.chatapp.service.EmailVerificationService;
+import com.example.chatapp.service.RecentMessageCache;
+import com.example.chatapp.service.RoomDirectoryCache;
+import com.example.chatapp.service.RoomSequenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -20,6 +24,10 @@ public class Scheduler {
     private final EmailVerificationService emailVerificationService;
     private final RoomRepository roomRepository;
     private final MessageRepository messageRepository;
+    private final RoomMembershipRepository roomMembershipRepository;
+    private final RecentMessageCache recentMessageCache;
+    private final RoomSequenceService roomSequenceService;
+    private final RoomDirectoryCache roomDirectoryCache;
 
     @Scheduled(fixedRate = 3600000) // 1 hour = 3600000 ms
     public void cleanupExpiredCodes() {
@@ -41,7 +49,11 @@ public class Scheduler {
         messageRepository.deleteByRoomIdIn(roomIds);
         log.info("Deleted messages from {} orphaned rooms", roomIds.size());
 
+        roomMembershipRepository.deleteByRoomIdIn(roomIds);
         roomRepository.deleteAll(expired);
+        roomDirectoryCache.invalidate();
+        recentMessageCache.evictAll(roomIds);
+        roomIds.forEach(roomSequenceService::evict);
         log.info("Deleted {} orphaned rooms after {}", expired.size(), now);
     }
 }
@@ -0,0 +1,117 @@
+package com.example.chatapp.util;
+
+import com.example.chatapp.config.SchemaMigrationProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one-time data migrations: {@code V<version>__<description>.sql} scripts applied once per database,
+ * in version order, and recorded in {@code schema_migration}.
+ * <p>
+ * Hibernate ({@code ddl-auto}) keeps creating tables and columns, and {@code data.sql} keeps the idempotent
+ * statements that are cheap to repeat on every start. Backfills and other statements that must not run again
+ * go here. Runs after both, before the application takes traffic. Each script runs in its own transaction
+ * under an advisory lock, so nodes starting together apply it once.
+ */
+@Component
+@DependsOnDatabaseInitialization
+@Slf4j
+public class SchemaMigrationRunner {
+    private static final Pattern SCRIPT_NAME = Pattern.compile("^V(\\d+)__(\\w+)\\.sql$");
+    private static final long LOCK_KEY = 7_450_011_251L; // any constant shared by all nodes
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchemaMigrationProperties properties;
+
+    @Autowired
+    public SchemaMigrationRunner(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 SchemaMigrationProperties properties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void migrate() throws IOException {
+        if (!properties.isEnabled()) {
+            log.info("Schema migrations are disabled");
+            return;
+        }
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migration (
+                    version INT PRIMARY KEY,
+                    script VARCHAR(255) NOT NULL,
+                    applied_at TIMESTAMP NOT NULL
+                )""");
+        for (Migration migration : findMigrations()) {
+            transactionTemplate.executeWithoutResult(status -> apply(migration));
+        }
+    }
+
+    private void apply(Migration migration) {
+        // released with the transaction, a node that waited finds the script applied
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", LOCK_KEY);
+        Integer applied = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM schema_migration WHERE version = ?", Integer.class, migration.version());
+        if (applied != null && applied > 0) return;
+
+        log.info("Applying schema migration {}", migration.script().getFilename());
+        long start = System.currentTimeMillis();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            ScriptUtils.executeSqlScript(connection, migration.script());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        jdbcTemplate.update("INSERT INTO schema_migration (version, script, applied_at) VALUES (?, ?, ?)",
+                migration.version(), migration.script().getFilename(), LocalDateTime.now());
+        log.info("Schema migration {} applied in {} ms", migration.script().getFilename(),
+                System.currentTimeMillis() - start);
+    }
+
+    private List<Migration> findMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources(properties.getLocation() + "/V*__*.sql");
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource resource : resources) {
+            Matcher matcher = SCRIPT_NAME.matcher(String.valueOf(resource.getFilename()));
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid schema migration name: " + resource.getFilename());
+            }
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)), resource));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Duplicate schema migration version " + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    private record Migration(int version, Resource script) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.chatapp.util;
+
+/**
+ * Time-ordered 64-bit id generator that runs in-process.
+ * <p>
+ * Layout: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a 12 bit
+ * per-millisecond sequence. When the sequence is exhausted or the clock goes backwards,
+ * the generator borrows the next millisecond instead of blocking, so ids stay monotonic.
+ */
+public class SnowflakeIdGenerator implements MessageIdGenerator {
+    public static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private long lastTimestamp = -1L;
+    private long sequence = 0L;
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ", got " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        long now = Math.max(System.currentTimeMillis(), lastTimestamp);
+        if (now == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) now++;
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = now;
+        return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.chatapp.util;
+
+/**
+ * {@link LruCache} split into independently locked stripes, for caches read on every request.
+ * <p>
+ * A key always maps to the same stripe, and each stripe holds an equal share of {@code capacity}
+ * and evicts its own least recently used entry. Threads only contend when their keys share a stripe,
+ * at the price of eviction order being per stripe rather than global.
+ */
+public class StripedLruCache<K, V> {
+    private final LruCache<K, V>[] stripes;
+
+    public StripedLruCache(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int capacity, int stripeCount) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int count = Math.max(1, Math.min(stripeCount, capacity));
+        this.stripes = new LruCache[count];
+        for (int i = 0; i < count; i++) {
+            // the first capacity % count stripes take one entry more, so the shares add up to capacity
+            stripes[i] = new LruCache<>(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    /** Returns the value, or null if it is absent or expired. */
+    public V get(K key) {
+        return stripe(key).get(key);
+    }
+
+    public void put(K key, V value, long expiresAt) {
+        stripe(key).put(key, value, expiresAt);
+    }
+
+    public void remove(K key) {
+        stripe(key).remove(key);
+    }
+
+    public void clear() {
+        for (LruCache<K, V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LruCache<K, V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private LruCache<K, V> stripe(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16; // spread the high bits, as HashMap does
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.chatapp.util;
 
 import com.example.chatapp.model.User;
+import com.example.chatapp.service.UserCache;
+import io.jsonwebtoken.Claims;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.security.core.GrantedAuthority;
@@ -8,6 +10,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -33,6 +36,30 @@ public class UserPrincipal implements UserDetails {
         );
     }
 
+    public static UserPrincipal create(UserCache.CachedUser user) {
+        var authorities = user.roles().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+
+        return new UserPrincipal(user.id(), user.username(), user.email(), user.password(), authorities);
+    }
+
+    /**
+     * Principal built from verified access token claims, without email and password.
+     * Returns null for tokens issued without the user id claim.
+     */
+    public static UserPrincipal fromClaims(Claims claims) {
+        Long id = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+        if (id == null) return null;
+
+        List<?> roles = claims.get(JwtUtil.ROLES_CLAIM, List.class);
+        var authorities = roles == null ? List.<SimpleGrantedAuthority>of() : roles.stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+
+        return new UserPrincipal(id, claims.getSubject(), null, null, authorities);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
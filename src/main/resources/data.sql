@@ -14,3 +14,36 @@ ON CONFLICT (name) DO NOTHING;
 
 
 INSERT INTO role (name) VALUES ('USER'), ('ADMIN') ON CONFLICT (name) DO NOTHING;
+
+
+-- Pooled message id sequence (chat.messages.id.strategy=SEQUENCE), INCREMENT BY = allocation-size.
+-- Moved past existing ids only when they are beyond anything the sequence has handed out.
+CREATE SEQUENCE IF NOT EXISTS message_id_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('message_id_seq', (SELECT MAX(id) + 1 FROM message), false)
+WHERE (SELECT COALESCE(MAX(id), 0) FROM message) >= (SELECT last_value + 50 FROM message_id_seq);
+
+
+-- Cluster events over the NOTIFY payload limit (chat.cluster), relayed by id and deleted after payload-retention.
+CREATE TABLE IF NOT EXISTS cluster_event_payload (
+    id BIGSERIAL PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+
+-- Rooms with free places, newest first (available room listing).
+CREATE INDEX IF NOT EXISTS idx_room_available_created_at ON room (created_at DESC, id DESC)
+WHERE member_count < member_limit;
+
+
+-- Room search (chat.rooms.search.engine=POSTGRES): name, description and topic names weighted A, B and C.
+-- Kept up to date by PostgresRoomSearchEngine on every room save; this fills it for rooms that predate it.
+ALTER TABLE room ADD COLUMN IF NOT EXISTS search_vector tsvector;
+CREATE INDEX IF NOT EXISTS idx_room_search_vector ON room USING GIN (search_vector);
+UPDATE room r SET search_vector =
+       setweight(to_tsvector('simple', coalesce(r.name, '')), 'A')
+    || setweight(to_tsvector('simple', coalesce(r.description, '')), 'B')
+    || setweight(to_tsvector('simple', coalesce((SELECT string_agg(t.name, ' ')
+                                                 FROM room_topics rt JOIN topic t ON t.id = rt.topics_id
+                                                 WHERE rt.room_id = r.id), '')), 'C')
+WHERE r.search_vector IS NULL;
@@ -0,0 +1,4 @@
+-- room.last_seq is allocated by RoomRepository.nextSeq; rooms that predate it continue from their highest stored seq.
+UPDATE room r SET last_seq = m.max_seq
+FROM (SELECT room_id, MAX(seq) AS max_seq FROM message GROUP BY room_id) m
+WHERE m.room_id = r.id AND r.last_seq < m.max_seq;
@@ -0,0 +1,12 @@
+-- refresh_tokens.token held the plaintext token. Rows from before hashing get its SHA-256 in the form
+-- RefreshTokenService stores (Base64url without padding) and a family of their own, so those sign-ins
+-- keep working, then the plaintext is dropped. The column is added first for databases that never had it.
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token VARCHAR(255);
+UPDATE refresh_tokens
+SET token_hash = rtrim(translate(encode(sha256(convert_to(token, 'UTF8')), 'base64'), '+/', '-_'), '=')
+WHERE token_hash IS NULL AND token IS NOT NULL;
+UPDATE refresh_tokens SET family_id = 'legacy-' || id WHERE family_id IS NULL;
+DELETE FROM refresh_tokens WHERE token_hash IS NULL;
+ALTER TABLE refresh_tokens DROP COLUMN token;
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens ALTER COLUMN family_id SET NOT NULL;
@@ -0,0 +1,6 @@
+-- room.member_count is maintained on join and leave; rooms that predate it start from their membership rows.
+UPDATE room r SET member_count = c.members
+FROM (SELECT r2.id, COUNT(m.room_id) AS members
+      FROM room r2 LEFT JOIN room_membership m ON m.room_id = r2.id
+      GROUP BY r2.id) c
+WHERE c.id = r.id AND r.member_count <> c.members;
@@ -0,0 +1,17 @@
+-- Memberships moved from the room_members join table to room_membership. The copy runs once, changes made
+-- through room_members afterwards are not carried over, so stop all nodes of the previous version before
+-- upgrading. The old table is left unused; it is created empty when missing so the copy works on fresh
+-- databases too. Counters of the copied rooms are recounted, V3 ran before the copy.
+CREATE TABLE IF NOT EXISTS room_members (room_id BIGINT NOT NULL, members_id BIGINT NOT NULL);
+INSERT INTO room_membership (room_id, user_id, role, joined_at)
+SELECT DISTINCT m.room_id, m.members_id,
+       CASE WHEN r.owner_id = m.members_id THEN 'OWNER' ELSE 'MEMBER' END,
+       COALESCE(r.created_at, now())
+FROM room_members m JOIN room r ON r.id = m.room_id
+ON CONFLICT DO NOTHING;
+UPDATE room r SET member_count = c.members
+FROM (SELECT m.room_id, COUNT(*) AS members
+      FROM room_membership m
+      WHERE m.room_id IN (SELECT room_id FROM room_members)
+      GROUP BY m.room_id) c
+WHERE c.room_id = r.id AND r.member_count <> c.members;
@@ -0,0 +1,6 @@
+-- room.last_message_* is written with each message batch; rooms that predate it get their newest message,
+-- by (timestamp, id) like MessageBatchRepository.
+UPDATE room r SET last_message_id = m.id, last_message_snippet = LEFT(m.content, 100), last_message_at = m.timestamp
+FROM (SELECT DISTINCT ON (room_id) room_id, id, content, timestamp
+      FROM message ORDER BY room_id, timestamp DESC, id DESC) m
+WHERE m.room_id = r.id AND r.last_message_id IS NULL;
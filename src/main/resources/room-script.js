@@ -1,5 +1,6 @@
 let stompClient = null;
 let selectedRoomId = null;
+let lastSeq = null;
 
 document.addEventListener("DOMContentLoaded", () => {
     loadRooms();
@@ -34,28 +35,72 @@ function connectToRoom(roomId) {
         });
     }
 
+    const resuming = roomId === selectedRoomId && lastSeq !== null;
+    if (!resuming) {
+        lastSeq = null;
+    }
+
     const socket = new SockJS("http://localhost:8080/ws");
-    stompClient = Stomp.over(socket);
+    const client = Stomp.over(socket);
+    stompClient = client;
 
-    stompClient.connect({}, function () {
+    client.connect({}, function () {
         selectedRoomId = roomId;
+        // live messages are held back until the history or the replay is shown
+        let pending = [];
 
-        stompClient.subscribe("/topic/room/" + roomId, function (message) {
+        client.subscribe("/topic/room/" + roomId, function (message) {
             const msg = JSON.parse(message.body);
-            showMessage(msg.content, msg.sender, msg.timestamp);
+            if (pending !== null) {
+                pending.push(msg);
+            } else {
+                showIfNew(msg);
+            }
         });
 
-        fetch("http://localhost:8080/api/" + roomId + "/messages")
-            .then(res => res.json())
-            .then(messages => {
-                document.getElementById("messages").innerHTML = "";
-                messages.forEach(msg => {
-                    showMessage(msg.content, msg.sender, msg.timestamp);
-                });
-            });
+        const flushPending = () => {
+            pending.forEach(showIfNew);
+            pending = null;
+        };
+
+        if (resuming) {
+            const replay = client.subscribe("/app/room/" + roomId + "/replay", function (message) {
+                const result = JSON.parse(message.body);
+                replay.unsubscribe();
+                if (result.truncated) {
+                    loadHistory(roomId).then(flushPending);
+                    return;
+                }
+                result.messages.forEach(showIfNew);
+                flushPending();
+            }, {"last-seq": lastSeq});
+        } else {
+            loadHistory(roomId).then(flushPending);
+        }
+    }, function () {
+        // reconnect only if this connection was not replaced on purpose
+        if (stompClient === client) {
+            setTimeout(() => connectToRoom(roomId), 2000);
+        }
     });
 }
 
+function loadHistory(roomId) {
+    return fetch("http://localhost:8080/api/" + roomId + "/messages/page")
+        .then(res => res.json())
+        .then(page => {
+            document.getElementById("messages").innerHTML = "";
+            lastSeq = null;
+            page.messages.forEach(showIfNew);
+        });
+}
+
+function showIfNew(msg) {
+    if (msg.seq != null && lastSeq !== null && msg.seq <= lastSeq) return;
+    if (msg.seq != null) lastSeq = msg.seq;
+    showMessage(msg.content, msg.sender, msg.timestamp);
+}
+
 function sendMessage() {
     const content = document.getElementById("inputMessage").value;
     if (!content || !selectedRoomId) return;
@@ -0,0 +1,79 @@
+package com.example.chatapp.config.broker;
+
+import com.example.chatapp.config.websocket.PayloadFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreEncodedFrameTest {
+
+    @Test
+    @DisplayName("Frames differ only in the subscription header and decode as regular MESSAGE frames")
+    void encodesSharedFramePerSubscription() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/topic/room/7");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] payload = "{\"content\":\"héllo\"}".getBytes(StandardCharsets.UTF_8);
+        Message<byte[]> message = MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+
+        PreEncodedFrame frame = PreEncodedFrame.of(message);
+        Message<byte[]> first = decode(new PreEncodedStompEncoder().encode(headersFor(frame, "sub-0")));
+        Message<byte[]> second = decode(frame.encode("sub:1"));
+
+        StompHeaderAccessor firstHeaders = StompHeaderAccessor.wrap(first);
+        StompHeaderAccessor secondHeaders = StompHeaderAccessor.wrap(second);
+        assertThat(firstHeaders.getCommand()).isEqualTo(StompCommand.MESSAGE);
+        assertThat(firstHeaders.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(secondHeaders.getSubscriptionId()).isEqualTo("sub:1");
+        assertThat(firstHeaders.getDestination()).isEqualTo("/topic/room/7");
+        assertThat(firstHeaders.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertThat(firstHeaders.getMessageId()).isNotNull().isEqualTo(secondHeaders.getMessageId());
+        assertThat(first.getPayload()).isEqualTo(payload);
+        assertThat(second.getPayload()).isEqualTo(payload);
+    }
+
+    @Test
+    @DisplayName("Sessions that negotiated CBOR get the body transcoded with the matching content type")
+    void encodesCborBody() throws Exception {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/topic/typing/3");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] json = "[{\"username\":\"bob\",\"typing\":true}]".getBytes(StandardCharsets.UTF_8);
+        PreEncodedFrame frame = PreEncodedFrame.of(MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+
+        Message<byte[]> decoded = decode(frame.encode("sub-0", PayloadFormat.CBOR));
+
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(decoded);
+        assertThat(headers.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(headers.getContentType()).isEqualTo(PayloadFormat.CBOR.getMimeType());
+        assertThat(new CBORMapper().readTree(decoded.getPayload())).isEqualTo(new ObjectMapper().readTree(json));
+    }
+
+    private static Message<byte[]> headersFor(PreEncodedFrame frame, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setHeader(PreEncodedFrame.HEADER, frame);
+        return MessageBuilder.createMessage(frame.getPayload(), accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> decode(byte[] bytes) {
+        List<Message<byte[]>> messages = new StompDecoder().decode(ByteBuffer.wrap(bytes));
+        assertThat(messages).hasSize(1);
+        return messages.get(0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.chatapp.config.broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ShardedBrokerMessageHandlerTest {
+
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShardedBrokerMessageHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+        outbound.subscribe(sent::add);
+        handler = new ShardedBrokerMessageHandler(new ExecutorSubscribableChannel(), outbound,
+                new ExecutorSubscribableChannel(), List.of("/topic"), 4, meterRegistry);
+        handler.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.stop();
+    }
+
+    @Test
+    @DisplayName("Messages reach only subscribers of the destination, with their subscription id")
+    void deliversToSubscribersOfDestination() {
+        handler.handleMessage(subscribe("s1", "sub-1", "/topic/room/1"));
+        handler.handleMessage(subscribe("s2", "sub-2", "/topic/room/1"));
+        handler.handleMessage(subscribe("s3", "sub-3", "/topic/room/2"));
+
+        handler.handleMessage(publish("/topic/room/1", "hello"));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> sent.size() == 2);
+        assertThat(sent).extracting(m -> SimpMessageHeaderAccessor.getSubscriptionId(m.getHeaders()))
+                .containsExactlyInAnyOrder("sub-1", "sub-2");
+        assertThat(meterRegistry.get("chat.broker.messages.delivered").tag("shard", "1").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Unsubscribed and disconnected sessions receive nothing")
+    void stopsDeliveryAfterUnsubscribeAndDisconnect() {
+        handler.handleMessage(subscribe("s1", "sub-1", "/topic/room/5"));
+        handler.handleMessage(subscribe("s2", "sub-2", "/topic/room/5"));
+        handler.handleMessage(subscribe("s3", "sub-3", "/topic/room/5"));
+
+        SimpMessageHeaderAccessor unsubscribe = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        unsubscribe.setSessionId("s1");
+        unsubscribe.setSubscriptionId("sub-1");
+        handler.handleMessage(MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders()));
+        SimpMessageHeaderAccessor disconnect = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+        disconnect.setSessionId("s2");
+        handler.handleMessage(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()));
+
+        handler.handleMessage(publish("/topic/room/5", "hello"));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> sent.size() == 1);
+        assertThat(SimpMessageHeaderAccessor.getSessionId(sent.get(0).getHeaders())).isEqualTo("s3");
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> publish(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload.getBytes(), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.chatapp.config.cluster;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ClusterFanoutTest {
+
+    private final InMemoryTransport transport = new InMemoryTransport();
+    private final InMemoryPayloadStore payloadStore = new InMemoryPayloadStore();
+    private final ClusterProperties properties = new ClusterProperties();
+    private final ExecutorSubscribableChannel channelA = new ExecutorSubscribableChannel();
+    private final ExecutorSubscribableChannel channelB = new ExecutorSubscribableChannel();
+    private final List<Message<?>> deliveredA = new CopyOnWriteArrayList<>();
+    private final List<Message<?>> deliveredB = new CopyOnWriteArrayList<>();
+    private ClusterFanout nodeA;
+    private ClusterFanout nodeB;
+
+    @BeforeEach
+    void setUp() {
+        channelA.subscribe(deliveredA::add);
+        channelB.subscribe(deliveredB::add);
+        properties.setBatchInterval(60_000L); // flushed by hand
+        properties.setOutboxCapacity(10);
+        nodeA = new ClusterFanout(channelA, transport, payloadStore, mock(MessageService.class), new ObjectMapper(),
+                properties, new SimpleMeterRegistry());
+        nodeB = new ClusterFanout(channelB, transport, payloadStore, mock(MessageService.class), new ObjectMapper(),
+                properties, new SimpleMeterRegistry());
+        nodeA.start();
+        nodeB.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    @DisplayName("Topic broadcasts reach the other node once and are not echoed back")
+    void relaysToOtherNodesOnly() {
+        channelA.send(publish("/topic/typing/1", "{\"typing\":true}"));
+        channelA.send(publish("/topic/room/1/joined", "{\"username\":\"bob\"}"));
+        nodeA.flush();
+        nodeB.flush();
+
+        assertThat(transport.batches).hasSize(1);
+        assertThat(deliveredA).hasSize(2);
+        assertThat(deliveredB).extracting(m -> SimpMessageHeaderAccessor.getDestination(m.getHeaders()))
+                .containsExactly("/topic/typing/1", "/topic/room/1/joined");
+        assertThat(new String((byte[]) deliveredB.get(0).getPayload(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"typing\":true}");
+    }
+
+    @Test
+    @DisplayName("Batches are split to fit the transport payload limit")
+    void splitsBatchesByPayloadLimit() {
+        transport.maxPayloadBytes = 300;
+        for (int i = 0; i < 5; i++) {
+            channelA.send(publish("/topic/typing/" + i, "x".repeat(100)));
+        }
+        nodeA.flush();
+
+        assertThat(transport.batches).hasSizeGreaterThan(1)
+                .allSatisfy(batch -> assertThat(batch.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(300));
+        assertThat(deliveredB).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("An event over the payload limit is relayed by reference and loaded by the other node")
+    void relaysOversizedEventsByReference() {
+        transport.maxPayloadBytes = 300;
+        String large = "y".repeat(1000);
+        channelA.send(publish("/topic/room/1/joined", large));
+        nodeA.flush();
+
+        assertThat(transport.batches).singleElement()
+                .satisfies(batch -> assertThat(batch).contains("payloadRef").doesNotContain(large));
+        assertThat(deliveredB).singleElement()
+                .satisfies(m -> assertThat(new String((byte[]) m.getPayload(), StandardCharsets.UTF_8)).isEqualTo(large));
+    }
+
+    @Test
+    @DisplayName("Presence deltas and typing snapshots stay on the node whose sessions they describe")
+    void keepsNodeLocalStateOffTheRelay() {
+        channelA.send(publish("/topic/room/1/presence", "{\"online\":false}"));
+        channelA.send(publish("/topic/typing/1/batch", "[]"));
+        nodeA.flush();
+
+        assertThat(deliveredA).hasSize(2);
+        assertThat(transport.batches).isEmpty();
+        assertThat(deliveredB).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Broadcasts over the outbox capacity are delivered locally only")
+    void boundsOutbox() {
+        for (int i = 0; i < 15; i++) {
+            channelA.send(publish("/topic/typing/1", "{}"));
+        }
+        nodeA.flush();
+
+        assertThat(deliveredA).hasSize(15);
+        assertThat(deliveredB).hasSize(properties.getOutboxCapacity());
+    }
+
+    private static Message<byte[]> publish(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private static class InMemoryPayloadStore implements ClusterPayloadStore {
+        private final Map<Long, String> payloads = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        @Override
+        public long save(String payload) {
+            long id = ids.incrementAndGet();
+            payloads.put(id, payload);
+            return id;
+        }
+
+        @Override
+        public String load(long id) {
+            return payloads.get(id);
+        }
+
+        @Override
+        public int deleteCreatedBefore(LocalDateTime cutoff) {
+            return 0;
+        }
+    }
+
+    private static class InMemoryTransport implements ClusterTransport {
+        private final List<Consumer<String>> receivers = new CopyOnWriteArrayList<>();
+        private final List<String> batches = new CopyOnWriteArrayList<>();
+        private int maxPayloadBytes = 7900;
+
+        @Override
+        public void publish(String batch) {
+            batches.add(batch);
+            receivers.forEach(receiver -> receiver.accept(batch));
+        }
+
+        @Override
+        public void start(Consumer<String> receiver) {
+            receivers.add(receiver);
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public int getMaxPayloadBytes() {
+            return maxPayloadBytes;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.chatapp.config.security;
+
+import com.example.chatapp.config.PasswordHashingProperties;
+import com.example.chatapp.handler.exception.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BoundedPasswordEncoderTest {
+
+    @Test
+    @DisplayName("Hash operations beyond the running and queued ones are rejected at once")
+    void rejectsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, properties, meterRegistry);
+
+        Thread running = new Thread(() -> encoder.encode("first"));
+        Thread queued = new Thread(() -> encoder.encode("second"));
+        running.start();
+        Thread.sleep(100);
+        queued.start();
+        Thread.sleep(100);
+
+        assertThatThrownBy(() -> encoder.encode("third")).isInstanceOf(PasswordHashingOverloadedException.class);
+
+        release.countDown();
+        running.join();
+        queued.join();
+        assertThat(encoder.encode("fourth")).isEqualTo("hash");
+        assertThat(meterRegistry.get("chat.passwords.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.passwords.hash").tag("operation", "encode").timer().count()).isEqualTo(3);
+        encoder.shutdown();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.chatapp.config.websocket;
+
+import com.example.chatapp.config.WebSocketTransportProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BufferedWebSocketSessionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final WebSocketSession delegate = mock(WebSocketSession.class);
+    private SlowConsumerGuard guard;
+    private WebSocketSession session;
+    private PayloadFormat format;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WebSocketTransportProperties properties = new WebSocketTransportProperties();
+        properties.setSendBufferSizeLimit(1000);
+        properties.setTypingDropThreshold(400);
+        properties.setSendThreads(1);
+        guard = new SlowConsumerGuard(properties, meterRegistry);
+
+        when(delegate.getId()).thenReturn("s1");
+        // the first frame goes through, the client stalls on the next one
+        AtomicInteger sends = new AtomicInteger();
+        doAnswer(invocation -> sends.incrementAndGet() > 1 && unblock.await(5, TimeUnit.SECONDS))
+                .when(delegate).sendMessage(any());
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        guard.decorate(handler).afterConnectionEstablished(delegate);
+        ArgumentCaptor<WebSocketSession> captor = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(captor.capture());
+        session = captor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        guard.stop();
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadFormat.class)
+    @DisplayName("A stalled session drops typing frames first, then is closed with the resume cursor")
+    void dropsTypingThenCloses(PayloadFormat format) throws Exception {
+        this.format = format;
+        session.sendMessage(frame("/topic/room/5", "{\"id\":1,\"seq\":41}"));
+        session.sendMessage(frame("/topic/room/5", "{\"id\":2,\"seq\":42}"));
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> verify(delegate, times(2)).sendMessage(any()));
+
+        session.sendMessage(frame("/topic/typing/5", "\"" + "x".repeat(150) + "\""));
+        session.sendMessage(frame("/topic/typing/5", "\"" + "x".repeat(150) + "\""));
+        assertThat(meterRegistry.get("chat.websocket.frames.dropped").counter().count()).isEqualTo(1.0);
+
+        session.sendMessage(frame("/topic/room/5", "\"" + "y".repeat(500) + "\""));
+        assertThat(meterRegistry.get("chat.websocket.frames.dropped").counter().count()).isEqualTo(1.0);
+        verify(delegate, never()).close(any());
+
+        session.sendMessage(frame("/topic/room/5", "\"" + "z".repeat(500) + "\""));
+        assertThat(meterRegistry.get("chat.websocket.frames.dropped").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("chat.websocket.sessions.evicted").counter().count()).isEqualTo(1.0);
+        ArgumentCaptor<CloseStatus> status = ArgumentCaptor.forClass(CloseStatus.class);
+        verify(delegate).close(status.capture());
+        assertThat(status.getValue().getCode()).isEqualTo(CloseStatus.SESSION_NOT_RELIABLE.getCode());
+        assertThat(status.getValue().getReason()).isEqualTo("slow consumer, resume=5:41");
+    }
+
+    private WebSocketMessage<?> frame(String destination, String json) throws IOException {
+        String headers = "MESSAGE\nsubscription:sub-0\ndestination:" + destination + "\n";
+        if (!format.isBinary()) {
+            return new TextMessage(headers + "\n" + json + "\0");
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.writeBytes((headers + "content-type:" + format.getMimeType() + "\n\n").getBytes(StandardCharsets.UTF_8));
+        frame.writeBytes(format.fromJson(json.getBytes(StandardCharsets.UTF_8)));
+        frame.write(0);
+        return new BinaryMessage(frame.toByteArray());
+    }
+}
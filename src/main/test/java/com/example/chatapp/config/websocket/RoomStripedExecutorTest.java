@@ -0,0 +1,58 @@
+package com.example.chatapp.config.websocket;
+
+import com.example.chatapp.config.InboundProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class RoomStripedExecutorTest {
+
+    @Test
+    @DisplayName("Messages of a room are handled in the order they were sent")
+    void keepsPerRoomOrder() {
+        InboundProperties properties = new InboundProperties();
+        properties.setStripes(4);
+        RoomStripedExecutor executor = new RoomStripedExecutor(properties, new SimpleMeterRegistry());
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        Map<Long, List<Integer>> handled = new ConcurrentHashMap<>();
+        channel.subscribe(message -> handled
+                .computeIfAbsent(roomOf(message), id -> new CopyOnWriteArrayList<>())
+                .add((Integer) message.getPayload()));
+
+        for (int i = 0; i < 1000; i++) {
+            channel.send(send("/app/room/" + (i % 7), i));
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> handled.values().stream().mapToInt(List::size).sum() == 1000);
+        handled.forEach((roomId, payloads) -> assertThat(payloads)
+                .containsExactlyElementsOf(IntStream.range(0, 1000).filter(i -> i % 7 == roomId).boxed().toList()));
+        executor.shutdown();
+    }
+
+    private static Long roomOf(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return Long.valueOf(destination.substring(destination.lastIndexOf('/') + 1));
+    }
+
+    private static Message<Integer> send(String destination, int payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s" + payload);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.chatapp.config.websocket;
+
+import com.example.chatapp.config.InboundProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedInboundChannelContextTest {
+
+    @Test
+    @DisplayName("The broker configuration starts with the striped executor on clientInboundChannel")
+    void startsWithStripedInboundChannel() {
+        new WebApplicationContextRunner()
+                .withUserConfiguration(StripedBrokerConfig.class)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context.getBean("clientInboundChannelExecutor")).isInstanceOf(RoomStripedExecutor.class);
+                    assertThat(context).hasSingleBean(WebSocketMessageBrokerStats.class);
+                });
+    }
+
+    // the inbound part of WebSocketConfig with chat.inbound.striped=true
+    @Configuration
+    @EnableWebSocketMessageBroker
+    static class StripedBrokerConfig implements WebSocketMessageBrokerConfigurer {
+
+        @Bean
+        RoomStripedExecutor roomStripedExecutor() {
+            InboundProperties properties = new InboundProperties();
+            properties.setStripes(2);
+            return new RoomStripedExecutor(properties, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public void configureMessageBroker(MessageBrokerRegistry config) {
+            config.enableSimpleBroker("/topic");
+            config.setApplicationDestinationPrefixes("/app");
+        }
+
+        @Override
+        public void registerStompEndpoints(StompEndpointRegistry registry) {
+            registry.addEndpoint("/ws");
+        }
+
+        @Override
+        public void configureClientInboundChannel(ChannelRegistration registration) {
+            registration.executor(roomStripedExecutor());
+        }
+    }
+}
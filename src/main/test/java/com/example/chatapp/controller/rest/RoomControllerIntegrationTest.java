@@ -6,6 +6,7 @@ import com.example.chatapp.model.*;
 import com.example.chatapp.model.dto.room.CreateRoomRequest;
 import com.example.chatapp.model.dto.room.CreateRoomResponse;
 import com.example.chatapp.repository.RoleRepository;
+import com.example.chatapp.repository.RoomMembershipRepository;
 import com.example.chatapp.repository.RoomRepository;
 import com.example.chatapp.repository.TopicRepository;
 import com.example.chatapp.repository.UserRepository;
@@ -30,7 +31,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -70,6 +70,9 @@ public class RoomControllerIntegrationTest {
     @Autowired
     private TopicRepository topicRepository;
 
+    @Autowired
+    private RoomMembershipRepository roomMembershipRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -154,6 +157,15 @@ public class RoomControllerIntegrationTest {
         return userRepository.save(user);
     }
 
+    private Room saveWithMembers(Room room, User... members) {
+        Room saved = roomRepository.save(room);
+        for (User member : members) {
+            MembershipRole role = member.equals(room.getOwner()) ? MembershipRole.OWNER : MembershipRole.MEMBER;
+            roomMembershipRepository.save(RoomMembership.of(saved.getId(), member.getId(), role));
+        }
+        return saved;
+    }
+
     private List<Topic> getTopics() {
         List<Topic> allTopics = topicRepository.findAll();
         Collections.shuffle(allTopics);
@@ -339,9 +351,9 @@ public class RoomControllerIntegrationTest {
             room.setCreatedAt(LocalDateTime.now());
             room.setType(RoomType.DEFAULT_ROOM);
             room.setDeleteAfter(null);
-            room.setMembers(List.of(testUser));
+            room.setMemberCount(1);
             room.setMemberLimit(100L);
-            roomRepository.save(room);
+            saveWithMembers(room, testUser);
         }
 
         mockMvc.perform(get("/api/rooms")
@@ -379,9 +391,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(List.of(testUser));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(get("/api/rooms/" + room.getId()))
                 .andExpect(status().isOk())
@@ -416,9 +428,9 @@ public class RoomControllerIntegrationTest {
         room1.setCreatedAt(LocalDateTime.now());
         room1.setType(RoomType.DEFAULT_ROOM);
         room1.setDeleteAfter(null);
-        room1.setMembers(List.of(testUser));
+        room1.setMemberCount(1);
         room1.setMemberLimit(100L);
-        roomRepository.save(room1);
+        saveWithMembers(room1, testUser);
 
         Room room2 = new Room();
         room2.setName("Advanced Java");
@@ -428,9 +440,9 @@ public class RoomControllerIntegrationTest {
         room2.setCreatedAt(LocalDateTime.now());
         room2.setType(RoomType.DEFAULT_ROOM);
         room2.setDeleteAfter(null);
-        room2.setMembers(List.of(testUser));
+        room2.setMemberCount(1);
         room2.setMemberLimit(100L);
-        roomRepository.save(room2);
+        saveWithMembers(room2, testUser);
 
         Topic javaTopic = Topic.builder().name("Java").build();
         topicRepository.save(javaTopic);
@@ -443,9 +455,9 @@ public class RoomControllerIntegrationTest {
         room3.setCreatedAt(LocalDateTime.now());
         room3.setType(RoomType.DEFAULT_ROOM);
         room3.setDeleteAfter(null);
-        room3.setMembers(List.of(testUser));
+        room3.setMemberCount(1);
         room3.setMemberLimit(100L);
-        roomRepository.save(room3);
+        saveWithMembers(room3, testUser);
 
         mockMvc.perform(get("/api/rooms/search")
                         .param("search", keyword))
@@ -467,9 +479,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(List.of(testUser));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(delete("/api/rooms/" + room.getId()))
                 .andExpect(status().isNoContent());
@@ -489,9 +501,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(List.of(testUser));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(delete("/api/rooms/" + room.getId()))
                 .andExpect(status().isForbidden());
@@ -511,9 +523,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/join"))
                 .andExpect(status().isOk())
@@ -534,9 +546,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser, seconduser)));
+        room.setMemberCount(2);
         room.setMemberLimit(2L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser, seconduser);
 
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/join"))
                 .andExpect(status().isConflict());
@@ -556,9 +568,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         // Сначала присоединяемся
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/join"))
@@ -581,9 +593,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/leave"))
                 .andExpect(status().isBadRequest());
@@ -603,9 +615,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(get("/api/rooms/" + room.getId() + "/members"))
                 .andExpect(status().isOk())
@@ -624,9 +636,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(get("/api/rooms/" + room.getId() + "/members"))
                 .andExpect(status().isForbidden());
@@ -646,9 +658,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         // Присоединяемся к комнате
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/join"))
@@ -671,9 +683,9 @@ public class RoomControllerIntegrationTest {
         room.setCreatedAt(LocalDateTime.now());
         room.setType(RoomType.DEFAULT_ROOM);
         room.setDeleteAfter(null);
-        room.setMembers(new ArrayList<>(List.of(testUser)));
+        room.setMemberCount(1);
         room.setMemberLimit(100L);
-        room = roomRepository.save(room);
+        room = saveWithMembers(room, testUser);
 
         mockMvc.perform(post("/api/rooms/" + room.getId() + "/become-owner"))
                 .andExpect(status().isForbidden());
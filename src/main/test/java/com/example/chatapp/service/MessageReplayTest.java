@@ -0,0 +1,125 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.config.RecentMessagesProperties;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.Room;
+import com.example.chatapp.model.dto.message.MessageDTO;
+import com.example.chatapp.model.dto.message.MessageReplayDTO;
+import com.example.chatapp.model.dto.message.SendMessageDTO;
+import com.example.chatapp.repository.MessageRepository;
+import com.example.chatapp.repository.RoomRepository;
+import com.example.chatapp.util.MessageIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MessageReplayTest {
+    private static final Long ROOM_ID = 1L;
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final AtomicLong ids = new AtomicLong(100);
+    private final AtomicLong lastSeq = new AtomicLong(); // room.last_seq
+    private MessageService messageService;
+
+    @BeforeEach
+    void setUp() {
+        RecentMessagesProperties properties = new RecentMessagesProperties();
+        properties.setCapacity(3);
+        MessageIdGenerator idGenerator = ids::incrementAndGet;
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setEnabled(true); // seqs are allocated from room.last_seq, shared with the remote messages
+        messageService = new MessageService(messageRepository, roomRepository,
+                mock(MessageWriteBehindService.class), idGenerator,
+                new RecentMessageCache(messageRepository, properties),
+                new RoomSequenceService(roomRepository, clusterProperties));
+        when(roomRepository.existsById(ROOM_ID)).thenReturn(true);
+        when(roomRepository.nextSeq(ROOM_ID)).thenAnswer(invocation -> lastSeq.incrementAndGet());
+        when(roomRepository.findLastSeq(ROOM_ID)).thenAnswer(invocation -> lastSeq.get());
+        when(roomRepository.getReferenceById(ROOM_ID)).thenReturn(Room.builder().id(ROOM_ID).build());
+    }
+
+    @Test
+    @DisplayName("A short gap is replayed from the recent message buffer")
+    void replaysFromBuffer() {
+        send("one");
+        send("two");
+        send("three");
+
+        MessageReplayDTO replay = messageService.replay(ROOM_ID, 1L);
+
+        assertThat(replay.getMessages()).extracting(MessageDTO::getSeq).containsExactly(2L, 3L);
+        assertThat(replay.getLastSeq()).isEqualTo(3L);
+        assertThat(replay.isTruncated()).isFalse();
+        verify(messageRepository, never()).findByRoom_IdAndSeqGreaterThanOrderBySeqAsc(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("A gap older than the buffer is loaded from the database and topped up with unsaved messages")
+    void replaysGapFromDatabase() {
+        List<Message> stored = LongStream.rangeClosed(1, 4).mapToObj(MessageReplayTest::stored).toList();
+        lastSeq.set(4);
+        when(messageRepository.findByRoom_IdOrderByIdDesc(eq(ROOM_ID), any()))
+                .thenReturn(List.of(stored.get(3), stored.get(2), stored.get(1)));
+        when(messageRepository.findByRoom_IdAndSeqGreaterThanOrderBySeqAsc(eq(ROOM_ID), eq(0L), any()))
+                .thenReturn(stored);
+        send("five"); // still queued for the write-behind insert
+
+        MessageReplayDTO replay = messageService.replay(ROOM_ID, 0L);
+
+        assertThat(replay.getMessages()).extracting(MessageDTO::getSeq).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(replay.getLastSeq()).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("A message relayed twice by the cluster is replayed once")
+    void dropsDuplicates() {
+        send("local");
+        MessageDTO remote = remote(ids.incrementAndGet(), lastSeq.incrementAndGet());
+        messageService.acceptRemoteMessage(ROOM_ID, remote);
+        messageService.acceptRemoteMessage(ROOM_ID, remote);
+
+        MessageReplayDTO replay = messageService.replay(ROOM_ID, 0L);
+
+        assertThat(replay.getMessages()).extracting(MessageDTO::getSeq).containsExactly(1L, 2L);
+        assertThat(messageService.replay(ROOM_ID, 2L).getMessages()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Messages of other nodes are replayed in seq order even when their ids are not")
+    void ordersBySeq() {
+        send("local"); // seq 1
+        long earlySeq = lastSeq.incrementAndGet();
+        long lateSeq = lastSeq.incrementAndGet();
+        messageService.acceptRemoteMessage(ROOM_ID, remote(ids.get() + 50, lateSeq));
+        messageService.acceptRemoteMessage(ROOM_ID, remote(ids.get() + 100, earlySeq));
+
+        MessageReplayDTO replay = messageService.replay(ROOM_ID, 0L);
+
+        assertThat(replay.getMessages()).extracting(MessageDTO::getSeq).containsExactly(1L, 2L, 3L);
+    }
+
+    private static MessageDTO remote(long id, long seq) {
+        return MessageDTO.builder().id(id).seq(seq).sender("bob").content("remote " + seq)
+                .timestamp(LocalDateTime.now()).build();
+    }
+
+    private void send(String content) {
+        messageService.saveAndReturn(ROOM_ID, new SendMessageDTO("alice", content));
+    }
+
+    private static Message stored(long seq) {
+        return Message.builder().id(seq).seq(seq).sender("alice").content("stored " + seq)
+                .timestamp(LocalDateTime.now()).persisted(true).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.MessageWriteBehindProperties;
+import com.example.chatapp.handler.exception.MessageRejectedException;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageDeadLetter;
+import com.example.chatapp.model.Room;
+import com.example.chatapp.repository.MessageBatchRepository;
+import com.example.chatapp.repository.MessageDeadLetterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class MessageWriteBehindServiceTest {
+
+    private final MessageBatchRepository batchRepository = mock(MessageBatchRepository.class);
+    private final MessageDeadLetterRepository deadLetterRepository = mock(MessageDeadLetterRepository.class);
+    private final MessageWriteBehindProperties properties = new MessageWriteBehindProperties();
+
+    private MessageWriteBehindService service() {
+        properties.setRetryBackoff(1L);
+        return new MessageWriteBehindService(batchRepository, deadLetterRepository, properties);
+    }
+
+    @Test
+    @DisplayName("Every message accepted before stop is stored, later ones are rejected")
+    void drainsOnStop() {
+        AtomicInteger stored = new AtomicInteger();
+        when(batchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            stored.addAndGet(invocation.<List<Message>>getArgument(0).size()); // the batch list is reused
+            return 1;
+        });
+        MessageWriteBehindService service = service();
+        service.start();
+        for (long id = 1; id <= 50; id++) {
+            service.enqueue(message(id));
+        }
+        service.stop();
+
+        assertThat(stored).hasValue(50);
+        assertThatThrownBy(() -> service.enqueue(message(51))).isInstanceOf(MessageRejectedException.class);
+    }
+
+    @Test
+    @DisplayName("A full queue rejects the message instead of storing it ahead of the queue")
+    void rejectsWhenFull() throws Exception {
+        properties.setQueueCapacity(1);
+        properties.setBatchSize(1);
+        properties.setOfferTimeout(50L);
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            if (inserting.getCount() > 0) { // only the first insert blocks
+                inserting.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return 1;
+        });
+        MessageWriteBehindService service = service();
+        service.start();
+
+        service.enqueue(message(1));
+        assertThat(inserting.await(5, TimeUnit.SECONDS)).isTrue(); // the worker holds message 1
+        service.enqueue(message(2)); // fills the queue
+        assertThatThrownBy(() -> service.enqueue(message(3))).isInstanceOf(MessageRejectedException.class);
+
+        release.countDown();
+        // stopping interrupts the worker, an insert still waiting on the latch would fail and be retried
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(batchRepository, times(2)).insertAll(anyList()));
+        service.stop();
+        verify(batchRepository, times(2)).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("A message failing on a constraint goes to dead letters at once, others after the last attempt")
+    void deadLettersFailedMessages() {
+        properties.setEnabled(false);
+        MessageWriteBehindService service = service();
+        when(batchRepository.insertAll(List.of(message(1))))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+        when(batchRepository.insertAll(List.of(message(2))))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        service.enqueue(message(1));
+        service.enqueue(message(2));
+
+        verify(batchRepository, times(1)).insertAll(List.of(message(1)));
+        verify(batchRepository, times(properties.getMaxAttempts())).insertAll(List.of(message(2)));
+        ArgumentCaptor<MessageDeadLetter> deadLetters = ArgumentCaptor.forClass(MessageDeadLetter.class);
+        verify(deadLetterRepository, times(2)).save(deadLetters.capture());
+        assertThat(deadLetters.getAllValues()).extracting(MessageDeadLetter::getId).containsExactly(1L, 2L);
+        assertThat(deadLetters.getAllValues()).extracting(MessageDeadLetter::getAttempts).containsExactly(1, 3);
+    }
+
+    private static Message message(long id) {
+        return Message.builder()
+                .id(id)
+                .seq(id)
+                .sender("alice")
+                .content("message " + id)
+                .timestamp(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .room(Room.builder().id(7L).build())
+                .build();
+    }
+}
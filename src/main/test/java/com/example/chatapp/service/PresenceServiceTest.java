@@ -0,0 +1,49 @@
+package com.example.chatapp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class PresenceServiceTest {
+
+    private final PresenceService presenceService = new PresenceService(mock(SimpMessagingTemplate.class));
+
+    @Test
+    @DisplayName("Presence follows the authenticated principal, the CONNECT login header is ignored")
+    void usesPrincipalOnly() {
+        Principal alice = () -> "alice";
+        presenceService.onConnect(new SessionConnectEvent(this, connect("s1", "admin"), alice));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s1"), alice));
+
+        presenceService.onConnect(new SessionConnectEvent(this, connect("s2", "bob"), null));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s2"), null));
+
+        assertThat(presenceService.getOnlineUsers(1L)).containsExactly("alice");
+    }
+
+    private static Message<byte[]> connect(String sessionId, String login) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setLogin(login);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> subscribe(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/room/1");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
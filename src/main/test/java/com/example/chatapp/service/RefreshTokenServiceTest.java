@@ -0,0 +1,80 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.handler.exception.RefreshTokenException;
+import com.example.chatapp.model.RefreshToken;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RefreshTokenServiceTest {
+
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+    private final Map<String, RefreshToken> rows = new HashMap<>();
+
+    private RefreshTokenService service() {
+        JwtProperties properties = new JwtProperties();
+        properties.setRefreshExpiration(3600L);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            token.setId((long) rows.size() + 1);
+            rows.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(repository.findByTokenHash(anyString())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.markUsed(anyLong(), any())).thenReturn(1);
+        when(repository.findActiveHashesByFamilyId(anyString())).thenAnswer(invocation -> rows.values().stream()
+                .filter(t -> t.getFamilyId().equals(invocation.getArgument(0)))
+                .map(RefreshToken::getTokenHash)
+                .toList());
+        when(repository.findRevokedHashes()).thenReturn(List.of());
+        RefreshTokenService service = new RefreshTokenService(repository, properties);
+        service.init();
+        return service;
+    }
+
+    @Test
+    @DisplayName("Rotation stores only hashes, and reusing a rotated token revokes its family")
+    void rotatesAndDetectsReuse() {
+        RefreshTokenService service = service();
+        User user = User.builder().id(1L).username("alice").build();
+
+        RefreshToken first = service.createRefreshToken(user);
+        assertThat(first.getTokenHash()).isNotEqualTo(first.getToken());
+
+        RefreshToken second = service.rotate(first.getToken());
+        assertThat(second.getFamilyId()).isEqualTo(first.getFamilyId());
+        rows.get(first.getTokenHash()).setUsedAt(LocalDateTime.now());
+
+        assertThatThrownBy(() -> service.rotate(first.getToken())).isInstanceOf(RefreshTokenException.class);
+        verify(repository).revokeFamily(eq(first.getFamilyId()), any());
+
+        // the revoked family is now rejected by the filter, without a lookup
+        clearInvocations(repository);
+        assertThatThrownBy(() -> service.rotate(second.getToken())).isInstanceOf(RefreshTokenException.class);
+        verify(repository, never()).findByTokenHash(anyString());
+    }
+
+    @Test
+    @DisplayName("A sign-in keeps only the newest token families of the user")
+    void prunesOldFamiliesOnSignIn() {
+        RefreshTokenService service = service();
+        User user = User.builder().id(1L).username("alice").build();
+
+        service.createRefreshToken(user);
+
+        verify(repository).deleteOldFamilies(1L, new JwtProperties().getRefreshFamiliesPerUser());
+    }
+}
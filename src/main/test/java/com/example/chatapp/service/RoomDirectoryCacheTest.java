@@ -0,0 +1,48 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.RoomDirectoryProperties;
+import com.example.chatapp.model.dto.room.RoomDirectoryPageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoomDirectoryCacheTest {
+
+    private final RoomDirectoryCache cache = new RoomDirectoryCache(new RoomDirectoryProperties(), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("The first page is loaded once per page size and reloaded after invalidation")
+    void cachesAndInvalidates() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getFirstPage(20, () -> page(loads.incrementAndGet()));
+        RoomDirectoryPageDTO cached = cache.getFirstPage(20, () -> page(loads.incrementAndGet()));
+        assertThat(loads).hasValue(1);
+        assertThat(cached.getNextCursor()).isEqualTo("1");
+
+        cache.getFirstPage(10, () -> page(loads.incrementAndGet()));
+        assertThat(loads).hasValue(2);
+
+        cache.invalidate();
+        assertThat(cache.getFirstPage(20, () -> page(loads.incrementAndGet())).getNextCursor()).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("A page loaded while the cache was invalidated is returned but not cached")
+    void doesNotCacheStalePage() {
+        RoomDirectoryPageDTO stale = cache.getFirstPage(20, () -> {
+            cache.invalidate(); // a room was created while the page was being read
+            return page(1);
+        });
+        assertThat(stale.getNextCursor()).isEqualTo("1");
+        assertThat(cache.getFirstPage(20, () -> page(2)).getNextCursor()).isEqualTo("2");
+    }
+
+    private static RoomDirectoryPageDTO page(int load) {
+        return RoomDirectoryPageDTO.builder().rooms(List.of()).nextCursor(String.valueOf(load)).hasMore(true).build();
+    }
+}
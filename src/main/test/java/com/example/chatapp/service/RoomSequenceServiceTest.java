@@ -0,0 +1,52 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.ClusterProperties;
+import com.example.chatapp.handler.exception.RoomNotFoundException;
+import com.example.chatapp.repository.RoomRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RoomSequenceServiceTest {
+
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+
+    private RoomSequenceService service(boolean cluster) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setEnabled(cluster);
+        return new RoomSequenceService(roomRepository, properties);
+    }
+
+    @Test
+    @DisplayName("On a single node seqs continue from room.last_seq in memory, without a write per message")
+    void countsInMemoryOnSingleNode() {
+        when(roomRepository.findLastSeq(1L)).thenReturn(41L);
+        RoomSequenceService service = service(false);
+
+        assertThat(service.nextSeq(1L)).isEqualTo(42L);
+        assertThat(service.nextSeq(1L)).isEqualTo(43L);
+        assertThat(service.currentSeq(1L)).isEqualTo(43L);
+        verify(roomRepository, times(1)).findLastSeq(1L);
+        verify(roomRepository, never()).nextSeq(anyLong());
+
+        service.evict(1L);
+        when(roomRepository.findLastSeq(1L)).thenReturn(null); // deleted
+        assertThatThrownBy(() -> service.nextSeq(1L)).isInstanceOf(RoomNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("In a cluster every seq is allocated by the database")
+    void allocatesInDatabaseInCluster() {
+        when(roomRepository.nextSeq(1L)).thenReturn(7L, 8L);
+        when(roomRepository.nextSeq(2L)).thenReturn(null); // no such room
+        RoomSequenceService service = service(true);
+
+        assertThat(service.nextSeq(1L)).isEqualTo(7L);
+        assertThat(service.nextSeq(1L)).isEqualTo(8L);
+        assertThatThrownBy(() -> service.nextSeq(2L)).isInstanceOf(RoomNotFoundException.class);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.handler.exception.RoomLimitMembersException;
+import com.example.chatapp.handler.exception.RoomNotFoundException;
+import com.example.chatapp.handler.exception.UserNotFoundException;
+import com.example.chatapp.model.MembershipRole;
+import com.example.chatapp.model.Room;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.RoomMembershipRepository;
+import com.example.chatapp.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RoomServiceTest {
+    private static final long ROOM_ID = 7L;
+    private static final long MEMBER_LIMIT = 3L;
+
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final RoomMembershipRepository roomMembershipRepository = mock(RoomMembershipRepository.class);
+    private final UserCache userCache = mock(UserCache.class);
+    private final RoomDirectoryCache roomDirectoryCache = mock(RoomDirectoryCache.class);
+    // the room row and its membership rows, with the atomicity of the conditional statements
+    private final AtomicInteger memberCount = new AtomicInteger();
+    private final Set<Long> members = ConcurrentHashMap.newKeySet();
+    private RoomService roomService;
+
+    @BeforeEach
+    void setUp() {
+        roomService = new RoomService(roomRepository, roomMembershipRepository, null, null, null, null, null, null,
+                userCache, roomDirectoryCache, null, null);
+        when(userCache.findByUsername(anyString())).thenAnswer(invocation -> {
+            String username = invocation.getArgument(0);
+            long id = Long.parseLong(username.substring("user".length()));
+            return Optional.of(new UserCache.CachedUser(id, username, null, null, null, true, Set.of()));
+        });
+        when(roomRepository.existsById(ROOM_ID)).thenReturn(true);
+        when(roomRepository.reservePlace(ROOM_ID)).thenAnswer(invocation ->
+                memberCount.getAndUpdate(count -> count < MEMBER_LIMIT ? count + 1 : count) < MEMBER_LIMIT ? 1 : 0);
+        when(roomRepository.decrementMemberCount(ROOM_ID)).thenAnswer(invocation ->
+                memberCount.getAndUpdate(count -> count > 0 ? count - 1 : count) > 0 ? 1 : 0);
+        when(roomMembershipRepository.insertIfAbsent(eq(ROOM_ID), anyLong(), anyString(), any()))
+                .thenAnswer(invocation -> members.add(invocation.getArgument(1)) ? 1 : 0);
+        when(roomMembershipRepository.isMember(eq(ROOM_ID), anyLong()))
+                .thenAnswer(invocation -> members.contains(invocation.<Long>getArgument(1)));
+        when(roomRepository.findById(ROOM_ID)).thenAnswer(invocation -> Optional.of(Room.builder()
+                .id(ROOM_ID).name("room").memberLimit(MEMBER_LIMIT).memberCount(memberCount.get()).build()));
+    }
+
+    @Test
+    @DisplayName("Joining a full room is rejected and leaves the counter at the limit")
+    void rejectsJoinToFullRoom() {
+        for (int i = 1; i <= MEMBER_LIMIT; i++) {
+            roomService.joinToRoom(ROOM_ID, user(i));
+        }
+
+        assertThatThrownBy(() -> roomService.joinToRoom(ROOM_ID, user(99))).isInstanceOf(RoomLimitMembersException.class);
+        assertThat(memberCount).hasValue((int) MEMBER_LIMIT);
+        assertThat(members).doesNotContain(99L);
+    }
+
+    @Test
+    @DisplayName("Joining again as a member gives the reserved place back, also when the room is full")
+    void joinAsMemberIsIdempotent() {
+        roomService.joinToRoom(ROOM_ID, user(1));
+        assertThat(roomService.joinToRoom(ROOM_ID, user(1)).getMembersCount()).isEqualTo(1L);
+        assertThat(memberCount).hasValue(1);
+
+        roomService.joinToRoom(ROOM_ID, user(2));
+        roomService.joinToRoom(ROOM_ID, user(3));
+        assertThat(roomService.joinToRoom(ROOM_ID, user(3)).getMembersCount()).isEqualTo(MEMBER_LIMIT);
+        verify(roomDirectoryCache, times(3)).invalidate();
+    }
+
+    @Test
+    @DisplayName("Joining a missing room is reported as not found, not as full")
+    void rejectsJoinToMissingRoom() {
+        when(roomRepository.reservePlace(8L)).thenReturn(0);
+        when(roomRepository.existsById(8L)).thenReturn(false);
+
+        assertThatThrownBy(() -> roomService.joinToRoom(8L, user(1))).isInstanceOf(RoomNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Concurrent joins, repeated ones included, never exceed the limit and keep the counter equal to the members")
+    void concurrentJoins() throws Exception {
+        int users = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < users * 2; i++) {
+                Authentication user = user(i % users + 1); // every user joins twice
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        roomService.joinToRoom(ROOM_ID, user);
+                        return true;
+                    } catch (RoomLimitMembersException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int joined = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(5, TimeUnit.SECONDS)) joined++;
+            }
+
+            // a repeated join holds a place for a moment, so a newcomer may be turned away before it is given back
+            assertThat(members).isNotEmpty().hasSizeLessThanOrEqualTo((int) MEMBER_LIMIT);
+            assertThat(memberCount).hasValue(members.size());
+            assertThat(joined).isBetween(members.size(), members.size() * 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Claiming ownership fails for a user who is no longer a member")
+    void becomeOwnerRequiresMembership() {
+        User user = User.builder().id(1L).username("user1").build();
+        when(userCache.getReference("user1")).thenReturn(Optional.of(user));
+        when(roomRepository.claimOwnership(ROOM_ID, user)).thenReturn(1);
+        when(roomMembershipRepository.updateRole(ROOM_ID, 1L, MembershipRole.OWNER)).thenReturn(0);
+
+        assertThatThrownBy(() -> roomService.becomeOwner(ROOM_ID, user(1))).isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("The replay cursor of a user moves the last-read seq of the membership")
+    void markReadAdvancesMembership() {
+        roomService.markRead(ROOM_ID, "user1", 42L);
+        doReturn(Optional.empty()).when(userCache).findByUsername("ghost");
+        roomService.markRead(ROOM_ID, "ghost", 43L);
+
+        verify(roomMembershipRepository).advanceLastReadSeq(ROOM_ID, 1L, 42L);
+        verifyNoMoreInteractions(roomMembershipRepository);
+    }
+
+    private static Authentication user(long id) {
+        return new UsernamePasswordAuthenticationToken("user" + id, null);
+    }
+}
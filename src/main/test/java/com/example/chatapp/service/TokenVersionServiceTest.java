@@ -0,0 +1,33 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class TokenVersionServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenVersionService tokenVersionService = new TokenVersionService(userRepository, new JwtProperties());
+
+    @Test
+    @DisplayName("A version loaded while it is evicted is not cached")
+    void doesNotCacheVersionEvictedDuringLoad() {
+        when(userRepository.findTokenVersionById(1L))
+                .thenAnswer(invocation -> {
+                    tokenVersionService.evict(1L); // revoked by another request while the old version is read
+                    return Optional.of(0);
+                })
+                .thenReturn(Optional.of(1));
+
+        assertThat(tokenVersionService.isCurrent(1L, 0)).isTrue();
+        assertThat(tokenVersionService.isCurrent(1L, 0)).isFalse();
+        assertThat(tokenVersionService.isCurrent(1L, 1)).isTrue();
+        verify(userRepository, times(2)).findTokenVersionById(1L);
+    }
+}
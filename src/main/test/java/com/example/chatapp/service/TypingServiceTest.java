@@ -0,0 +1,67 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.TypingProperties;
+import com.example.chatapp.model.dto.websocket.TypingStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TypingServiceTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    @Test
+    @DisplayName("Keystrokes are coalesced into one snapshot and expired typers are reported as stopped")
+    @SuppressWarnings("unchecked")
+    void coalescesAndExpires() throws InterruptedException {
+        TypingProperties properties = new TypingProperties();
+        properties.setTtl(500L);
+        properties.setLegacyEvents(false);
+        TypingService typingService = new TypingService(messagingTemplate, properties);
+
+        for (int i = 0; i < 10; i++) {
+            typingService.typing(1L, "alice", true);
+        }
+        typingService.typing(1L, "bob", true);
+        typingService.flush();
+        typingService.flush();
+
+        ArgumentCaptor<Object> snapshot = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/typing/1/batch"), snapshot.capture());
+        assertThat((List<TypingStatus>) snapshot.getValue())
+                .containsExactlyInAnyOrder(new TypingStatus("alice", true), new TypingStatus("bob", true));
+
+        typingService.typing(1L, "bob", false);
+        Thread.sleep(600);
+        typingService.flush();
+
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/typing/1/batch"), snapshot.capture());
+        assertThat((List<TypingStatus>) snapshot.getValue())
+                .containsExactlyInAnyOrder(new TypingStatus("alice", false), new TypingStatus("bob", false));
+
+        typingService.flush();
+        verify(messagingTemplate, times(2)).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Legacy subscribers keep receiving one status object per message")
+    void sendsLegacyEvents() {
+        TypingService typingService = new TypingService(messagingTemplate, new TypingProperties());
+
+        typingService.typing(1L, "alice", true);
+        typingService.typing(1L, "bob", true);
+        typingService.flush();
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/typing/1/batch"), any(Object.class));
+        verify(messagingTemplate).convertAndSend("/topic/typing/1", new TypingStatus("alice", true));
+        verify(messagingTemplate).convertAndSend("/topic/typing/1", new TypingStatus("bob", true));
+    }
+}
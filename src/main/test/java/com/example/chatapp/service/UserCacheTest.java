@@ -0,0 +1,56 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.config.UserCacheProperties;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class UserCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserCache userCache = new UserCache(userRepository, new UserCacheProperties(), meterRegistry);
+
+    @Test
+    @DisplayName("A user is loaded once, served by username, and reloaded after eviction")
+    void cachesAndEvicts() {
+        User alice = User.builder().id(1L).username("alice").email("alice@example.com").roles(new HashSet<>()).build();
+        when(userRepository.findWithRolesByUsername("alice")).thenReturn(Optional.of(alice));
+
+        assertThat(userCache.findByUsername("alice")).map(UserCache.CachedUser::id).contains(1L);
+        assertThat(userCache.findByUsername("alice")).isPresent();
+        verify(userRepository, times(1)).findWithRolesByUsername("alice");
+
+        userCache.evict(alice);
+        userCache.findByUsername("alice");
+        verify(userRepository, times(2)).findWithRolesByUsername("alice");
+
+        assertThat(meterRegistry.get("chat.users.cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.users.cache.gets").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A user loaded while it is evicted is not cached")
+    void doesNotCacheUserEvictedDuringLoad() {
+        User before = User.builder().id(1L).username("alice").password("old-hash").roles(new HashSet<>()).build();
+        User after = User.builder().id(1L).username("alice").password("new-hash").roles(new HashSet<>()).build();
+        when(userRepository.findWithRolesByUsername("alice"))
+                .thenAnswer(invocation -> {
+                    userCache.evict("alice"); // password changed by another request during the load
+                    return Optional.of(before);
+                })
+                .thenReturn(Optional.of(after));
+
+        assertThat(userCache.findByUsername("alice")).map(UserCache.CachedUser::password).contains("old-hash");
+        assertThat(userCache.findByUsername("alice")).map(UserCache.CachedUser::password).contains("new-hash");
+        verify(userRepository, times(2)).findWithRolesByUsername("alice");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.chatapp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryRoomSearchEngineTest {
+
+    private final InMemoryRoomSearchEngine engine = new InMemoryRoomSearchEngine();
+
+    @Test
+    @DisplayName("Words match as prefixes, all must match, name matches rank first")
+    void ranksPrefixMatches() {
+        engine.index(1L, "Python Programming", "Learn Python", List.of("Java"));
+        engine.index(2L, "Java Programming", "Learn Java", List.of("Technology"));
+        engine.index(3L, "Advanced topics", "All about JavaScript", List.of());
+
+        assertThat(engine.search("jav", 10)).extracting(RoomSearchEngine.RoomSearchHit::roomId)
+                .containsExactly(2L, 3L, 1L);
+        assertThat(engine.search("java prog", 10)).extracting(RoomSearchEngine.RoomSearchHit::roomId)
+                .containsExactly(2L, 1L);
+        assertThat(engine.search("python java", 1)).extracting(RoomSearchEngine.RoomSearchHit::roomId)
+                .containsExactly(1L);
+        assertThat(engine.search("rust", 10)).isEmpty();
+        assertThat(engine.search("  %&  ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Matched words are highlighted in the name and description")
+    void highlightsMatches() {
+        engine.index(1L, "Java Programming", "Learn Java, then JavaScript", List.of());
+
+        RoomSearchEngine.RoomSearchHit hit = engine.search("java", 10).get(0);
+        assertThat(hit.highlightedName()).isEqualTo("<b>Java</b> Programming");
+        assertThat(hit.highlightedDescription()).isEqualTo("Learn <b>Java</b>, then <b>JavaScript</b>");
+    }
+
+    @Test
+    @DisplayName("Highlights escape the room text, the markers are the only markup")
+    void escapesHighlightedText() {
+        engine.index(1L, "<script>java</script>", "Tom & Jerry's <i>java</i>", List.of());
+
+        RoomSearchEngine.RoomSearchHit hit = engine.search("java", 10).get(0);
+        assertThat(hit.highlightedName()).isEqualTo("&lt;script&gt;<b>java</b>&lt;/script&gt;");
+        assertThat(hit.highlightedDescription()).isEqualTo("Tom &amp; Jerry&#39;s &lt;i&gt;<b>java</b>&lt;/i&gt;");
+    }
+
+    @Test
+    @DisplayName("Inside a transaction rooms are indexed on commit, never on rollback")
+    void indexesOnCommitOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            engine.index(1L, "Rolled back", null, List.of());
+            assertThat(engine.search("rolled", 10)).isEmpty();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertThat(engine.search("rolled", 10)).isEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            engine.index(2L, "Committed", null, List.of());
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            assertThat(engine.search("committed", 10)).hasSize(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Reindexing replaces the room, null topics keep the indexed ones, removed rooms are not found")
+    void reindexesAndRemoves() {
+        engine.index(1L, "Gaming night", null, List.of("Gaming"));
+        engine.index(1L, "Board games", null, null);
+
+        assertThat(engine.search("night", 10)).isEmpty();
+        assertThat(engine.search("board gaming", 10)).hasSize(1);
+
+        engine.remove(1L);
+        assertThat(engine.search("board", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.chatapp.util;
+
+import com.example.chatapp.config.JwtProperties;
+import com.example.chatapp.model.Role;
+import com.example.chatapp.model.User;
+import com.example.chatapp.model.SigningKey;
+import com.example.chatapp.repository.SigningKeyRepository;
+import com.example.chatapp.service.JwtKeyService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class JwtUtilTest {
+
+    private static final String KEY_ENCRYPTION_KEY = "Q5IqTdjojenr6OMJJRl0y5FFn+rQuCLfuedIISdemSA=";
+
+    private final SigningKeyRepository signingKeyRepository = mock(SigningKeyRepository.class);
+
+    private JwtKeyService jwtKeyService(String algorithm) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("testSecretKey12345678901234567890123456789");
+        properties.setExpiration(60L);
+        properties.setAlgorithm(algorithm);
+        properties.setKeyEncryptionKey(KEY_ENCRYPTION_KEY);
+        when(signingKeyRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        JwtKeyService jwtKeyService = new JwtKeyService(signingKeyRepository, properties);
+        jwtKeyService.init();
+        return jwtKeyService;
+    }
+
+    private JwtUtil jwtUtil() {
+        return jwtUtil(jwtKeyService(JwtKeyService.RS256));
+    }
+
+    private JwtUtil jwtUtil(JwtKeyService jwtKeyService) {
+        JwtProperties properties = new JwtProperties();
+        properties.setExpiration(60L);
+        properties.setClaimsCacheSize(2);
+        return new JwtUtil(properties, jwtKeyService);
+    }
+
+    @Test
+    @DisplayName("A token is verified once and its claims are served from the cache afterwards")
+    void verifiesOnce() {
+        JwtUtil jwtUtil = jwtUtil();
+        String token = jwtUtil.generateToken("alice", Set.of());
+
+        Claims first = jwtUtil.verifyToken(token);
+        Claims second = jwtUtil.verifyToken(token);
+
+        assertThat(first.getSubject()).isEqualTo("alice");
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("The principal is built from the claims of a token issued for a user")
+    void principalFromClaims() {
+        JwtUtil jwtUtil = jwtUtil();
+        Role role = new Role();
+        role.setName("USER");
+        User user = User.builder().id(7L).username("alice").tokenVersion(3).roles(Set.of(role)).build();
+
+        Claims claims = jwtUtil.verifyToken(jwtUtil.generateToken(user));
+        UserPrincipal principal = UserPrincipal.fromClaims(claims);
+
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("alice");
+        assertThat(principal.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        assertThat(claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Integer.class)).isEqualTo(3);
+        assertThat(UserPrincipal.fromClaims(jwtUtil.verifyToken(jwtUtil.generateToken("bob", Set.of())))).isNull();
+    }
+
+    @Test
+    @DisplayName("Tokens name their signing key, which is published in the key set")
+    @SuppressWarnings("unchecked")
+    void signsWithPublishedKey() {
+        for (String algorithm : List.of(JwtKeyService.RS256, JwtKeyService.EDDSA)) {
+            JwtKeyService jwtKeyService = jwtKeyService(algorithm);
+            String token = jwtUtil(jwtKeyService).generateToken("alice", Set.of());
+            String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+
+            List<Map<String, Object>> keys = (List<Map<String, Object>>) jwtKeyService.jwks().get("keys");
+            assertThat(keys).singleElement().satisfies(key -> {
+                assertThat(header).contains("\"kid\":\"" + key.get("kid") + "\"");
+                assertThat(key).containsEntry("alg", algorithm).doesNotContainKey("d");
+            });
+            // another instance loads the same key from the database and verifies the token
+            SigningKey saved = savedKey();
+            when(signingKeyRepository.findByExpiresAtAfterOrderByCreatedAtDesc(any())).thenReturn(List.of(saved));
+            JwtKeyService otherInstance = jwtKeyService(algorithm);
+            assertThat(jwtUtil(otherInstance).verifyToken(token).getSubject()).isEqualTo("alice");
+            reset(signingKeyRepository);
+        }
+    }
+
+    @Test
+    @DisplayName("Private keys are stored wrapped, and plain rows from before are wrapped on load")
+    void storesWrappedPrivateKeys() {
+        jwtKeyService(JwtKeyService.RS256);
+        SigningKey saved = savedKey();
+        assertThat(PrivateKeyCipher.isWrapped(saved.getPrivateKey())).isTrue();
+        byte[] encoded = new PrivateKeyCipher(KEY_ENCRYPTION_KEY).unwrap(saved.getKid(), saved.getPrivateKey());
+        assertThat(saved.getPrivateKey()).doesNotContain(Base64.getEncoder().encodeToString(encoded));
+        reset(signingKeyRepository);
+
+        SigningKey legacy = SigningKey.builder()
+                .kid(saved.getKid()).algorithm(saved.getAlgorithm()).publicKey(saved.getPublicKey())
+                .privateKey(Base64.getEncoder().encodeToString(encoded))
+                .createdAt(saved.getCreatedAt()).retireAt(saved.getRetireAt()).expiresAt(saved.getExpiresAt())
+                .build();
+        when(signingKeyRepository.findByExpiresAtAfterOrderByCreatedAtDesc(any())).thenReturn(List.of(legacy));
+        JwtKeyService jwtKeyService = jwtKeyService(JwtKeyService.RS256);
+
+        assertThat(PrivateKeyCipher.isWrapped(savedKey().getPrivateKey())).isTrue();
+        assertThat(jwtKeyService.signingKeyId()).isEqualTo(saved.getKid());
+    }
+
+    private SigningKey savedKey() {
+        ArgumentCaptor<SigningKey> saved = ArgumentCaptor.forClass(SigningKey.class);
+        verify(signingKeyRepository).save(saved.capture());
+        return saved.getValue();
+    }
+
+    @Test
+    @DisplayName("Tampered and malformed tokens are rejected")
+    void rejectsInvalidTokens() {
+        JwtUtil jwtUtil = jwtUtil();
+        String token = jwtUtil.generateToken("alice", Set.of());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThat(jwtUtil.verifyToken(tampered)).isNull();
+        assertThat(jwtUtil.verifyToken("not.a.token")).isNull();
+        assertThat(jwtUtil.verifyToken(null)).isNull();
+    }
+}
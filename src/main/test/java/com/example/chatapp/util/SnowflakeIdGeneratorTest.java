@@ -0,0 +1,46 @@
+package com.example.chatapp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    @DisplayName("Ids are strictly increasing even when the per-millisecond sequence overflows")
+    void idsAreStrictlyIncreasing() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = generator.nextId();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("Ids are unique across threads and carry the generation time")
+    void idsAreUniqueAcrossThreads() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        long before = System.currentTimeMillis();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 50_000).parallel().forEach(i -> ids.add(generator.nextId()));
+
+        assertThat(ids).hasSize(50_000);
+        assertThat(SnowflakeIdGenerator.timestampOf(ids.iterator().next())).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("Node id outside of 10 bits is rejected")
+    void rejectsInvalidNodeId() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
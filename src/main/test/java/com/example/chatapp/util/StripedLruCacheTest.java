@@ -0,0 +1,52 @@
+package com.example.chatapp.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedLruCacheTest {
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Test
+    @DisplayName("Stripes share the capacity, so the cache never holds more than it was sized for")
+    void boundsSizeAcrossStripes() {
+        StripedLruCache<Integer, Integer> cache = new StripedLruCache<>(10, 4);
+
+        IntStream.range(0, 1_000).parallel().forEach(i -> cache.put(i, i, NEVER));
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Expired, removed and cleared entries are not returned")
+    void dropsExpiredAndRemovedEntries() {
+        StripedLruCache<String, String> cache = new StripedLruCache<>(100, 8);
+        cache.put("live", "a", NEVER);
+        cache.put("expired", "b", System.currentTimeMillis() - 1);
+        cache.put("removed", "c", NEVER);
+        cache.remove("removed");
+
+        assertThat(cache.get("live")).isEqualTo("a");
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.get("removed")).isNull();
+
+        cache.clear();
+        assertThat(cache.get("live")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("A capacity below the stripe count still keeps every key cacheable")
+    void smallCapacity() {
+        StripedLruCache<Integer, Integer> cache = new StripedLruCache<>(2, 16);
+        cache.put(1, 1, NEVER);
+        cache.put(2, 2, NEVER);
+        cache.put(3, 3, NEVER);
+
+        assertThat(cache.get(3)).isEqualTo(3);
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+    }
+}